@@ -15,9 +15,12 @@ import java.util.Scanner;
  * information; each line must contain:
  *  ORIG DEST DISTANCE
  * separated by a single space. ORIG and DEST are parsed as Strings, and
- * DISTANCE is parsed as a double. Any content after DISTANCE is ignored. */
+ * DISTANCE is parsed as a double. Any content after DISTANCE is ignored.
+ * Filters see the three fields as the columns origin, dest and distance. */
 public class BasicParser extends GraphParser {
 
+    private static final String[] COLUMNS = {"origin", "dest", "distance"};
+
     Scanner sc; // scanner to read the text file
 
     /** Open the given file and prepare to parse it. */
@@ -27,23 +30,17 @@ public class BasicParser extends GraphParser {
         sc = new Scanner(f);
     }
 
-    /** Parse an opened file and return a Graph representing the data in
-     * the file. Precondition: open() has been successfully called. */
+    /** Return the single metric of basic files, distance. */
     @Override
-    public Graph parse() {
-        Graph graph = new Graph();
-
-        while (sc.hasNextLine()) {
-            String[] data = sc.nextLine().split(" ");
-            String origCode = data[0];
-            String destCode = data[1];
-            double distance = Double.parseDouble(data[2]);
-
-            Node orig = graph.getNode(origCode);
-            Node dest = graph.getNode(destCode);
-            graph.addEdge(orig, dest, distance);
-        }
+    public String[] getMetricNames() {
+        return new String[] {"distance"};
+    }
 
-        return graph;
+    /** Parse an opened file, passing each accepted edge to sink.
+     * Precondition: open() has been successfully called. */
+    @Override
+    public void parse(EdgeSink sink) {
+        Row row = new Row(columnMap(COLUMNS), ' ');
+        stream(sc, row, 0, 1, new int[] {2}, sink);
     }
 }
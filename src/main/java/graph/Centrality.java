@@ -0,0 +1,342 @@
+package graph;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Betweenness and closeness centrality of every airport, computed with
+ * Brandes' algorithm: one Dijkstra search per source that also counts the
+ * shortest paths to each node, followed by a pass over the nodes in reverse
+ * order of distance that accumulates each node's dependency on the source.
+ * Predecessors are found through the reverse adjacency index instead of
+ * being stored. Sources are handed out to worker threads in blocks; every
+ * worker keeps its own search state and primitive score arrays, which are
+ * added up when all workers are done.
+ * Betweenness is normalized by (n - 1)(n - 2), the number of ordered pairs
+ * of other nodes, and closeness is harmonic closeness, the mean of
+ * 1 / distance from every other node, which stays meaningful when some
+ * airports cannot be reached. Both can be estimated from a random sample of
+ * sources (computeSampled), with a bound on the betweenness error that
+ * holds for every node at once with 95% confidence.
+ * Edges on no shortest path do not affect either score, so a PrunedGraph
+ * may be used as the source for speed.
+ * Example usage:
+ *     Centrality c = new Centrality(graph);
+ *     c.compute();
+ *     c.report(10); */
+public class Centrality {
+
+    // sources a worker takes at a time from the shared counter
+    private static final int BLOCK = 16;
+
+    // probability that the sampled error bound fails for some node
+    private static final double FAILURE_PROBABILITY = 0.05;
+
+    private final GraphSource source;
+    private Metric metric = Metric.PRIMARY;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // results of the last computation, by node index of snapshot
+    private GraphSnapshot snapshot;
+    private double[] betweenness;
+    private double[] closeness;
+    private int sources;
+    private double errorBound;
+
+    /** Constructor: create a Centrality for the graph in source. */
+    public Centrality(GraphSource source) {
+        this.source = source;
+    }
+
+    /** Select the metric used as edge cost. Every edge weight under it must
+     * be positive: with zero-weight edges shortest paths are not settled in
+     * strictly increasing order, which the path counts rely on. */
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
+    /** Set the number of worker threads; by default one per core. */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.threads = threads;
+    }
+
+    /** Compute the exact scores, using every node as a source. */
+    public void compute() {
+        GraphSnapshot snap = source.snapshot();
+        int n = snap.nodeCount();
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) {
+            all[i] = i;
+        }
+        run(snap, all);
+        errorBound = 0;
+    }
+
+    /** Estimate the scores from the given number of sources, chosen at
+     * random (without repetition) with the given seed. Every estimate is
+     * unbiased; see getErrorBound for how far off betweenness may be. */
+    public void computeSampled(int samples, long seed) {
+        GraphSnapshot snap = source.snapshot();
+        int n = snap.nodeCount();
+        if (samples < 1) {
+            throw new IllegalArgumentException("Need at least one sample");
+        }
+        if (samples >= n) {
+            compute();
+            return;
+        }
+        // a partial Fisher-Yates shuffle picks the first samples indices
+        int[] picked = new int[n];
+        for (int i = 0; i < n; i++) {
+            picked[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = picked[i];
+            picked[i] = picked[j];
+            picked[j] = t;
+        }
+        run(snap, Arrays.copyOf(picked, samples));
+
+        // Hoeffding's bound on each node's mean dependency, which lies in
+        // [0, 1] after dividing by n - 2, with a union bound over the nodes
+        errorBound = (double) n / (n - 1) * Math.sqrt(
+                Math.log(2.0 * n / FAILURE_PROBABILITY) / (2.0 * samples));
+    }
+
+    /* Run Brandes' algorithm from the given sources of snap on the worker
+     * threads, then add up and normalize the workers' scores. Throws
+     * IllegalArgumentException if some edge weight is not positive. */
+    private void run(GraphSnapshot snap, int[] from) {
+        snap.checkMetric(metric);
+        if (!(snap.minWeight(metric) > 0)) {
+            throw new IllegalArgumentException(
+                    "Centrality needs positive edge weights under " + metric);
+        }
+        int n = snap.nodeCount();
+        AtomicInteger next = new AtomicInteger();
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(snap, metric);
+        }
+        Parallel.run(threads, "Centrality", t -> {
+            int first;
+            while ((first = next.getAndAdd(BLOCK)) < from.length) {
+                int last = Math.min(from.length, first + BLOCK);
+                for (int k = first; k < last; k++) {
+                    workers[t].search(from[k]);
+                }
+            }
+        });
+
+        double[] b = new double[n];
+        double[] c = new double[n];
+        for (Worker w : workers) {
+            for (int i = 0; i < n; i++) {
+                b[i] += w.betweenness[i];
+                c[i] += w.closeness[i];
+            }
+        }
+
+        // scale sampled sums up to all n sources, then normalize
+        double scale = (double) n / from.length;
+        double pairs = (double) (n - 1) * (n - 2);
+        for (int i = 0; i < n; i++) {
+            b[i] = pairs > 0 ? b[i] * scale / pairs : 0;
+            c[i] = n > 1 ? c[i] * scale / (n - 1) : 0;
+        }
+        snapshot = snap;
+        betweenness = b;
+        closeness = c;
+        sources = from.length;
+    }
+
+    /** The search state and score sums of one worker thread. */
+    private static final class Worker {
+        private final GraphSnapshot snap;
+        private final Metric metric;
+        private final Frontier frontier;
+
+        // per node of the current search: distance from the source, number
+        //  of shortest paths, and dependency of the source on the node
+        private final double[] distance;
+        private final double[] paths;
+        private final double[] dependency;
+
+        // nodes in the order they were settled
+        private final int[] settled;
+
+        // score sums over this worker's sources
+        final double[] betweenness;
+        final double[] closeness;
+
+        Worker(GraphSnapshot snap, Metric metric) {
+            int n = snap.nodeCount();
+            this.snap = snap;
+            this.metric = metric;
+            frontier = Frontier.create(Frontier.Kind.AUTO, snap, metric);
+            distance = new double[n];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            paths = new double[n];
+            dependency = new double[n];
+            settled = new int[n];
+            betweenness = new double[n];
+            closeness = new double[n];
+        }
+
+        /* Add the dependencies of source s and its closeness contributions
+         * to the sums, then reset the state of the nodes it reached. */
+        void search(int s) {
+            int count = 0;
+            frontier.clear();
+            distance[s] = 0;
+            paths[s] = 1;
+            frontier.push(s, 0);
+            while (!frontier.isEmpty()) {
+                int v = frontier.poll();
+                settled[count++] = v;
+                int end = snap.endEdge(v);
+                for (int k = snap.firstEdge(v); k < end; k++) {
+                    int w = snap.target(v, k);
+                    double d = distance[v] + snap.weight(v, k, metric);
+                    if (d < distance[w]) {
+                        distance[w] = d;
+                        paths[w] = paths[v];
+                        frontier.push(w, d);
+                    } else if (d == distance[w]) {
+                        paths[w] += paths[v];
+                    }
+                }
+            }
+
+            // accumulate dependencies from the farthest node back; a
+            // predecessor v of w is an in-neighbor on a shortest path
+            for (int j = count - 1; j > 0; j--) {
+                int w = settled[j];
+                closeness[w] += 1 / distance[w];
+                double share = (1 + dependency[w]) / paths[w];
+                int end = snap.endInEdge(w);
+                for (int k = snap.firstInEdge(w); k < end; k++) {
+                    int v = snap.source(w, k);
+                    if (distance[v] + snap.inWeight(w, k, metric)
+                            == distance[w]) {
+                        dependency[v] += paths[v] * share;
+                    }
+                }
+                betweenness[w] += dependency[w];
+            }
+
+            for (int j = 0; j < count; j++) {
+                int v = settled[j];
+                distance[v] = Double.POSITIVE_INFINITY;
+                paths[v] = 0;
+                dependency[v] = 0;
+            }
+        }
+    }
+
+    /** Return the snapshot scored by the last computation. */
+    public GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Return the number of sources the last computation used. */
+    public int getSourceCount() {
+        return sources;
+    }
+
+    /** Return the largest amount by which the betweenness of any node may
+     * differ from its exact value, with 95% confidence, or 0 if the scores
+     * are exact. */
+    public double getErrorBound() {
+        return errorBound;
+    }
+
+    /** Return the normalized betweenness of n: the fraction of shortest
+     * paths between other nodes that pass through n, summed over all
+     * ordered pairs of other nodes and divided by their number.
+     * Precondition: n is a node of getSnapshot(). */
+    public double getBetweenness(Node n) {
+        return betweenness[n.getIndex()];
+    }
+
+    /** Return the harmonic closeness of n: the mean over all other nodes of
+     * 1 / distance from that node to n, where unreachable nodes count 0.
+     * Precondition: n is a node of getSnapshot(). */
+    public double getCloseness(Node n) {
+        return closeness[n.getIndex()];
+    }
+
+    /** Return the nodes by decreasing betweenness. */
+    public List<Node> rankByBetweenness() {
+        return rank(betweenness);
+    }
+
+    /** Return the nodes by decreasing closeness. */
+    public List<Node> rankByCloseness() {
+        return rank(closeness);
+    }
+
+    /* Return the nodes of the snapshot by decreasing score; ties are broken
+     * by index. */
+    private List<Node> rank(final double[] score) {
+        Integer[] order = new Integer[score.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> score[a] != score[b]
+                ? Double.compare(score[b], score[a]) : a - b);
+        ArrayList<Node> nodes = new ArrayList<Node>(order.length);
+        for (int i : order) {
+            nodes.add(snapshot.nodeAt(i));
+        }
+        return nodes;
+    }
+
+    /** Print the top nodes by betweenness and by closeness, with the
+     * scores of each. Precondition: one of the compute methods has been
+     * called. */
+    public void report(int top) {
+        System.out.println("Centrality from " + sources + " of "
+                + snapshot.nodeCount() + " sources"
+                + (errorBound > 0 ? String.format(
+                        ", betweenness error at most %.4f", errorBound) : ""));
+        printRanking("betweenness", rankByBetweenness(), top);
+        printRanking("closeness", rankByCloseness(), top);
+    }
+
+    /* Print the first top nodes of ranking with both of their scores. */
+    private void printRanking(String title, List<Node> ranking, int top) {
+        System.out.println("Top airports by " + title + ":");
+        System.out.println(String.format("%4s %-8s %12s %12s", "rank", "id",
+                "betweenness", "closeness"));
+        for (int r = 0; r < Math.min(top, ranking.size()); r++) {
+            Node n = ranking.get(r);
+            System.out.println(String.format("%4d %-8s %12.6f %12.6f", r + 1,
+                    n.getId(), getBetweenness(n), getCloseness(n)));
+        }
+    }
+
+    /** Main method: print the graph report followed by the centrality
+     * report of a graph file.
+     * Usage: Centrality fileType fileName [top] [samples] */
+    public static void main(String[] args) {
+        Graph graph;
+        try {
+            graph = ShortestPaths.parseGraph(args[0], args[1]);
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not open file " + args[1]);
+            return;
+        }
+        int top = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        graph.report(top, samples);
+    }
+}
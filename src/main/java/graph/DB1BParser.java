@@ -12,6 +12,13 @@ import java.io.FileNotFoundException;
 import java.util.HashMap;
 import java.util.Scanner;
 
+/** Parser for DB1B Coupon CSV files. Each edge is weighted by one or more
+ * numeric columns, named by their CSV header (case-insensitive). By default
+ * only the distance column is read; passing several names loads them all in
+ * one pass as the metrics of the resulting Graph, e.g.
+ *     new DB1BParser("distance", "coupons")
+ * Filters and attributes may use any column of the file, e.g. carrier or
+ * quarter. */
 public class DB1BParser extends GraphParser {
 
     private Scanner sc; // a scanner reading the CSV file
@@ -19,46 +26,61 @@ public class DB1BParser extends GraphParser {
     // map csv headers to column indices
     private HashMap<String,Integer> fieldKey;
 
-    private Graph graph;
+    // names of the columns loaded as edge weights, and their column indices
+    private final String[] metricNames;
+    private int[] metricColumns;
 
-    /** Constructor: create parser. */
+    // columns of the origin and destination airport codes
+    private int origColumn;
+    private int destColumn;
+
+    /** Constructor: create parser that weights edges by distance. */
     public DB1BParser() {
-        graph = new Graph();
+        this("distance");
+    }
+
+    /** Constructor: create parser that loads the named numeric columns as
+     * the edge metrics, in the given order. */
+    public DB1BParser(String... metricNames) {
+        this.metricNames = metricNames.clone();
     }
 
-    /** Open the given file and prepare to parse it. */
+    /** Open the given file and prepare to parse it. Throws
+     * IllegalArgumentException if a requested metric column is missing. */
     @Override
     public void open(File f) throws FileNotFoundException {
         sc = new Scanner(f);
         parseHeaders(sc.nextLine());
+        metricColumns = new int[metricNames.length];
+        for (int m = 0; m < metricNames.length; m++) {
+            metricColumns[m] = columnOf(metricNames[m]);
+        }
+        origColumn = columnOf("origin");
+        destColumn = columnOf("dest");
     }
 
-    /** Parse an opened file and return a Graph representing the data in the
-     * file. Precondition: open() has been successfully called. */
-    @Override
-    public Graph parse() {
-        graph = new Graph();
-        while (sc.hasNextLine()) {
-            parseFlight(sc.nextLine().split(","));
+    /* Return the index of the named column. Throws IllegalArgumentException
+     * if there is none. */
+    private int columnOf(String name) {
+        Integer column = fieldKey.get(name.toLowerCase());
+        if (column == null) {
+            throw new IllegalArgumentException("No column named " + name);
         }
-        return graph;
+        return column;
     }
 
-    /* Parse a line of the DB1B CSV file and construct a Flight object (edge)
-     * representing the data given in that line.  If the origin or destination
-     * airport is not a node in the graph, add it to the graph. Add this Flight
-     * to the list of departures from the origin. */
-    private void parseFlight(String[] fields) {
-        String origCode = fields[fieldKey.get("origin")].replace("\"","");;
-        String destCode = fields[fieldKey.get("dest")].replace("\"","");;
-
-        // if origin is not in graph, parse and create the new Airport
-
-        Node orig = graph.getNode(origCode);
-        Node dest = graph.getNode(destCode);
+    /** Return the names of the columns loaded as edge weights. */
+    @Override
+    public String[] getMetricNames() {
+        return metricNames.clone();
+    }
 
-        double miles = Double.parseDouble(fields[fieldKey.get("distance")]);
-        graph.addEdge(orig, dest, miles);
+    /** Parse an opened file, passing the flight (edge) on each accepted line
+     * to sink. Precondition: open() has been successfully called. */
+    @Override
+    public void parse(EdgeSink sink) {
+        stream(sc, new Row(fieldKey, ','), origColumn, destColumn,
+                metricColumns, sink);
     }
 
     /* create fieldKey from the header line of the csv file.
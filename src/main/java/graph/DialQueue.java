@@ -0,0 +1,85 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Dial's bucket queue for non-negative integral priorities that never fall
+ * below the last polled one and are no more than maxWeight above it, as in
+ * Dijkstra's algorithm with edge weights of at most maxWeight. Bucket
+ * k mod (maxWeight + 1) holds the nodes with priority k, so each push is
+ * O(1) and polling scans forward from the last priority. Decrease-key adds
+ * the node to its new bucket and leaves the old entry behind; entries that
+ * no longer match the node's priority are skipped. */
+final class DialQueue implements Frontier {
+
+    private final int[][] buckets;
+    private final int[] sizes;
+
+    private final long[] best;    // current priority of each queued node
+    private final int[] stamp;    // equal to epoch if queued since clear()
+    private final boolean[] polled; // true if removed since it was queued
+    private int epoch = 1;
+    private int live;             // number of queued nodes
+    private long cursor;          // priority of the bucket being polled
+
+    /** Constructor: create a queue for node indices 0 .. capacity - 1 and
+     * edge weights of at most maxWeight. */
+    DialQueue(int capacity, long maxWeight) {
+        if (maxWeight >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many buckets");
+        }
+        buckets = new int[(int) maxWeight + 1][];
+        sizes = new int[buckets.length];
+        best = new long[capacity];
+        stamp = new int[capacity];
+        polled = new boolean[capacity];
+    }
+
+    @Override
+    public void push(int node, double priority) {
+        long k = (long) priority;
+        if (stamp[node] != epoch) {
+            stamp[node] = epoch;
+            polled[node] = false;
+            live++;
+        } else if (polled[node] || k >= best[node]) {
+            return;
+        }
+        best[node] = k;
+        int b = (int) (k % buckets.length);
+        if (buckets[b] == null) {
+            buckets[b] = new int[4];
+        } else if (sizes[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], sizes[b] * 2);
+        }
+        buckets[b][sizes[b]++] = node;
+    }
+
+    @Override
+    public int poll() {
+        while (true) {
+            int b = (int) (cursor % buckets.length);
+            while (sizes[b] > 0) {
+                int node = buckets[b][--sizes[b]];
+                if (!polled[node] && best[node] == cursor) {
+                    polled[node] = true;
+                    live--;
+                    return node;
+                }
+            }
+            cursor++;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    @Override
+    public void clear() {
+        epoch++;
+        live = 0;
+        cursor = 0;
+        Arrays.fill(sizes, 0);
+    }
+}
@@ -0,0 +1,16 @@
+package graph;
+
+/** Receives the edges a GraphParser streams out of a file, one call per
+ * accepted row. A Graph is one sink; others can aggregate the edges or write
+ * them elsewhere without building a graph. Example usage:
+ *     parser.open(file);
+ *     parser.parse((orig, dest, weights, attributes) -> ...); */
+public interface EdgeSink {
+
+    /** Accept an edge from origCode to destCode with one weight per metric
+     * of the parser and the values of the parser's attribute columns, both in
+     * the order they were requested. The arrays are reused for the next
+     * edge, so copy them to keep them. */
+    void accept(String origCode, String destCode, double[] weights,
+            String[] attributes);
+}
@@ -0,0 +1,78 @@
+package graph;
+
+/** A priority queue of node indices keyed by tentative distance, used as the
+ * frontier of Dijkstra's algorithm. Each node is queued at most once: pushing
+ * a queued node again only lowers its priority. Implementations:
+ *     PAIRING     pairing heap, amortized O(1) decrease-key
+ *     QUATERNARY  indexed 4-ary heap, for any non-negative weights
+ *     RADIX       radix heap, for non-negative integral weights
+ *     DIAL        Dial's circular buckets, for small non-negative integral
+ *                 weights
+ * The integer queues are monotone: every priority pushed must be integral
+ * and no lower than the priority of the last node polled, which Dijkstra's
+ * algorithm guarantees when all edge weights are non-negative integers. */
+public interface Frontier {
+
+    /** The available implementations. AUTO picks one from the weights of
+     * the graph under the metric being searched. */
+    enum Kind { AUTO, PAIRING, QUATERNARY, RADIX, DIAL }
+
+    // largest edge weight for which AUTO picks Dial's buckets, which cost
+    //  one bucket per possible weight
+    long DIAL_MAX_WEIGHT = 1 << 16;
+
+    /** Queue node with the given priority, or lower its priority if it is
+     * already queued with a higher one. */
+    void push(int node, double priority);
+
+    /** Remove and return the queued node with the lowest priority.
+     * Precondition: !isEmpty(). */
+    int poll();
+
+    /** Return true if no node is queued. */
+    boolean isEmpty();
+
+    /** Remove all queued nodes, so the queue can be reused. */
+    void clear();
+
+    /** Return a new frontier of the given kind for searching snap under
+     * metric. Throws IllegalArgumentException if kind is RADIX or DIAL and
+     * some weight is not a non-negative integer. AUTO uses Dial's buckets if
+     * every weight is a non-negative integer no larger than DIAL_MAX_WEIGHT,
+     * a radix heap if they are larger integers, and a 4-ary heap
+     * otherwise. */
+    static Frontier create(Kind kind, GraphSnapshot snap, Metric metric) {
+        int capacity = snap.nodeCount();
+        long maxWeight = -1;
+        if (kind != Kind.PAIRING && kind != Kind.QUATERNARY) {
+            maxWeight = snap.maxIntegralWeight(metric);
+        }
+        if (kind == Kind.AUTO) {
+            if (maxWeight < 0) {
+                kind = Kind.QUATERNARY;
+            } else if (maxWeight <= DIAL_MAX_WEIGHT) {
+                kind = Kind.DIAL;
+            } else {
+                kind = Kind.RADIX;
+            }
+        }
+        switch (kind) {
+            case PAIRING:
+                return new PairingHeap(capacity);
+            case RADIX:
+                if (maxWeight < 0) {
+                    throw new IllegalArgumentException(
+                            "Radix heaps need non-negative integral weights");
+                }
+                return new RadixHeap(capacity);
+            case DIAL:
+                if (maxWeight < 0) {
+                    throw new IllegalArgumentException(
+                            "Dial's buckets need non-negative integral weights");
+                }
+                return new DialQueue(capacity, maxWeight);
+            default:
+                return new QuaternaryHeap(capacity);
+        }
+    }
+}
@@ -7,6 +7,8 @@
 
 package graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
@@ -14,15 +16,44 @@ import java.util.Collections;
 /** A graph class representing a graph in adjacency-list style format. The
  * Graph stores a mapping from unique String node identifiers to respective
  * Node objects. Edges are stored in each Node's neighbors, accessible by its
- * getNeighbors field. */
-public class Graph {
+ * getTarget and getWeight methods, and mirrored in the destination Node's
+ * predecessors (getSource) so that searches can also run against edge
+ * direction. Each edge carries one weight per metric; the metrics of a graph
+ * are named when it is created, e.g. after the CSV columns they came from.
+ * A Graph is meant to be built by a single thread; queries read an immutable
+ * snapshot of it (see snapshot()). Use VersionedGraph to update a graph while
+ * it is being queried. */
+public class Graph implements GraphSource, EdgeSink {
 
     // maps node ids to nodes:
     private HashMap<String,Node> nodes;
 
-    /** Constructor: create an empty graph */
+    // nodes in creation order, so that byIndex.get(n.getIndex()) == n
+    private ArrayList<Node> byIndex;
+
+    // incremented whenever a node or edge is added, to invalidate indexes
+    private int modCount;
+
+    // immutable copy read by queries, built on demand; null if stale
+    private GraphSnapshot snapshot;
+
+    // names of the weight columns stored with every edge, in column order
+    private final String[] metricNames;
+
+    /** Constructor: create an empty graph with a single "distance" metric */
     public Graph() {
+        this("distance");
+    }
+
+    /** Constructor: create an empty graph whose edges carry one weight for
+     * each of the given metric names. */
+    public Graph(String... metricNames) {
+        if (metricNames.length == 0) {
+            throw new IllegalArgumentException("A graph needs a metric");
+        }
+        this.metricNames = metricNames.clone();
         nodes = new HashMap<String,Node>();
+        byIndex = new ArrayList<Node>();
     }
 
     /** Return the node with id s. If no such node exists already, create
@@ -31,11 +62,43 @@ public class Graph {
         if (nodes.containsKey(s)) {
             return nodes.get(s);
         }
-        Node n = new Node(s);
+        Node n = new Node(this, s, byIndex.size(), metricNames.length);
         nodes.put(s, n);
+        byIndex.add(n);
+        modCount++;
         return n;
     }
 
+    /** Return the number of nodes in the graph. */
+    public int nodeCount() {
+        return byIndex.size();
+    }
+
+    /** Return the node with the given index.
+     * Precondition: 0 <= index < nodeCount(). */
+    public Node nodeAt(int index) {
+        return byIndex.get(index);
+    }
+
+    /** Return an immutable snapshot of the graph's current contents,
+     * building a new one if the graph changed since the last call. */
+    @Override
+    public GraphSnapshot snapshot() {
+        GraphSnapshot snap = snapshot;
+        if (snap == null || snap.getVersion() != modCount) {
+            snap = GraphSnapshot.of(this, modCount);
+            snapshot = snap;
+        }
+        return snap;
+    }
+
+    /** Return the strongly connected components of the graph together with
+     * their reachability labels, computing them if the graph changed since
+     * the last call. */
+    public Reachability getReachability() {
+        return snapshot().getReachability();
+    }
+
     /** Return a read-only view on the map from node ids to nodes. This is
      * read-only to avoid modification by client code that could create nodes
      * with duplicate id's. Node creation should be done exclusively with
@@ -44,19 +107,99 @@ public class Graph {
         return Collections.unmodifiableMap(nodes);
     }
 
+    /** Return the names of the metrics stored with each edge, in column
+     * order. */
+    public String[] getMetricNames() {
+        return metricNames.clone();
+    }
+
+    /** Return the metric that selects the weight column with the given name.
+     * Throws IllegalArgumentException if the graph has no such metric. */
+    public Metric metric(String name) {
+        return Metric.named(metricNames, name);
+    }
+
+    /** Return the metric that sums coefficients[k] times the weight column
+     * named names[k]. Throws IllegalArgumentException if the arrays differ in
+     * length or a name is not a metric of this graph. */
+    public Metric metric(String[] names, double[] coefficients) {
+        return Metric.named(metricNames, names, coefficients);
+    }
+
     /** Add an edge to the graph. If an edge from orig to
-     * dest exists already, overwrite it. */
+     * dest exists already, overwrite it. The reverse index is updated
+     * as well. Throws IllegalArgumentException if the graph has more than
+     * one metric; give every weight with addEdge(orig, dest, weights). */
     public void addEdge(Node orig, Node dest, double distance) {
         orig.addNeighbor(dest, distance);
     }
 
+    /** Add an edge to the graph carrying one weight per metric, in the order
+     * of getMetricNames. If an edge from orig to dest exists already,
+     * overwrite it. The weights are copied, so callers may reuse the array. */
+    public void addEdge(Node orig, Node dest, double[] weights) {
+        orig.addNeighbor(dest, weights);
+    }
+
+    /** Record that an edge of one of this graph's nodes was added or
+     * changed, whether through addEdge or Node.addNeighbor. */
+    void edgeChanged() {
+        modCount++;
+    }
+
+    /** Add an edge from origCode to destCode, creating the nodes if needed,
+     * so that a parser can stream straight into this graph. The weights must
+     * follow getMetricNames; attributes are not stored. */
+    @Override
+    public void accept(String origCode, String destCode, double[] weights,
+            String[] attributes) {
+        addEdge(getNode(origCode), getNode(destCode), weights);
+    }
+
+    /** Return a copy of this graph whose nodes are created in the given
+     * order, so that nodes close to each other in the graph get nearby
+     * indices, and whose edges are added by increasing target index within
+     * each node. Node ids and edge weights are unchanged, so queries look up
+     * airports by code as before, but through the new graph's getNode. */
+    public Graph reordered(NodeOrder order) {
+        GraphSnapshot snap = snapshot();
+        int n = snap.nodeCount();
+        int[] perm = order.permutation(snap);
+        int[] rank = new int[n]; // rank[i] is the new index of old index i
+        Graph g = new Graph(metricNames);
+        for (int k = 0; k < n; k++) {
+            rank[perm[k]] = k;
+            g.getNode(snap.nodeAt(perm[k]).getId());
+        }
+
+        double[] weights = new double[metricNames.length];
+        for (int k = 0; k < n; k++) {
+            int v = perm[k];
+            int first = snap.firstEdge(v);
+            // sort the edges by new target index, remembering where each is
+            long[] keys = new long[snap.endEdge(v) - first];
+            for (int e = 0; e < keys.length; e++) {
+                keys[e] = ((long) rank[snap.target(v, first + e)] << 32) | e;
+            }
+            Arrays.sort(keys);
+            for (long key : keys) {
+                int e = first + (int) key;
+                for (int m = 0; m < weights.length; m++) {
+                    weights[m] = snap.weight(v, e, m);
+                }
+                g.addEdge(g.nodeAt(k), g.nodeAt((int) (key >>> 32)), weights);
+            }
+        }
+        return g;
+    }
+
     /** Print a report of the graph's statistics, including number of nodes,
      * number of edges, and average degree. */
     public void report() {
         int numNodes = nodes.size();
         int numEdges = 0;
         for (Node n : nodes.values()) {
-            numEdges += n.getNeighbors().size();
+            numEdges += n.getDegree();
         }
 
         System.out.println("Graph has: ");
@@ -66,4 +209,19 @@ public class Graph {
                 ((double) numEdges) / ((double) numNodes));
     }
 
+    /** Print the report above, followed by the top airports by betweenness
+     * and closeness centrality (see Centrality). If samples is positive, the
+     * centrality is estimated from that many random sources; otherwise it is
+     * exact, which takes one search per node. */
+    public void report(int top, int samples) {
+        report();
+        Centrality centrality = new Centrality(this);
+        if (samples > 0) {
+            centrality.computeSampled(samples, 0);
+        } else {
+            centrality.compute();
+        }
+        centrality.report(top);
+    }
+
 }
@@ -1,21 +1,90 @@
 package graph;
 
 import java.util.HashMap;
+import java.util.Scanner;
 import java.io.File;
 import java.io.FileNotFoundException;
 
-/** Abstract class for parsing graph information.
+/** Abstract class for parsing graph information. A parser streams the edges
+ * of a file into an EdgeSink; parse() uses a new Graph as the sink. Rows can
+ * be filtered with setFilter, which is checked before anything else on the
+ * row is decoded, and extra columns can be passed along with each edge with
+ * setAttributes.
  * Example usage (for BasicParser, which extends this class):
  *     BasicParser p = new BasicParser();
  *     p.open(filename);
  *     Graph g = p.parse() */
 public abstract class GraphParser {
 
+    // rows the filter rejects are skipped; null to keep every row
+    private RowFilter filter;
+
+    // names of the columns passed to the sink with each edge
+    private String[] attributes = new String[0];
+
     /** Open the given file and prepare to parse it. */
     public abstract void open(File f) throws FileNotFoundException;
 
+    /** Return the names of the weights each parsed edge carries. */
+    public abstract String[] getMetricNames();
+
+    /** Parse an opened file, passing each edge on a row accepted by the
+     * filter to sink. Precondition: open() has been successfully called. */
+    public abstract void parse(EdgeSink sink);
+
     /** Parse an opened file and return a Graph representing the data in
      * the file. Precondition: open() has been successfully called. */
-    public abstract Graph parse();
+    public Graph parse() {
+        Graph graph = new Graph(getMetricNames());
+        parse(graph);
+        return graph;
+    }
+
+    /** Only parse the rows that filter accepts; null accepts every row. */
+    public void setFilter(RowFilter filter) {
+        this.filter = filter;
+    }
+
+    /** Pass the values of the named columns to the sink with each edge. */
+    public void setAttributes(String... columns) {
+        attributes = columns.clone();
+    }
+
+    /** Return a map from the lower-case column names to their positions. */
+    protected static HashMap<String,Integer> columnMap(String... names) {
+        HashMap<String,Integer> columns = new HashMap<String,Integer>();
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].toLowerCase(), i);
+        }
+        return columns;
+    }
 
+    /** Read the remaining lines of sc as rows of row's format, and pass the
+     * edge on every row that the filter accepts to sink: from column orig to
+     * column dest, weighted by weightColumns. Fields are only decoded once
+     * the row is accepted. Throws IllegalArgumentException if an attribute
+     * column or a column the filter names does not exist. */
+    protected void stream(Scanner sc, Row row, int orig, int dest,
+            int[] weightColumns, EdgeSink sink) {
+        int[] attributeColumns = new int[attributes.length];
+        for (int a = 0; a < attributes.length; a++) {
+            attributeColumns[a] = row.column(attributes[a]);
+        }
+        RowFilter accepted = filter == null ? null : filter.bind(row);
+        double[] weights = new double[weightColumns.length];
+        String[] values = new String[attributes.length];
+        while (sc.hasNextLine()) {
+            row.reset(sc.nextLine());
+            if (accepted != null && !accepted.accept(row)) {
+                continue;
+            }
+            for (int m = 0; m < weights.length; m++) {
+                weights[m] = row.number(weightColumns[m]);
+            }
+            for (int a = 0; a < values.length; a++) {
+                values[a] = row.text(attributeColumns[a]);
+            }
+            sink.accept(row.text(orig), row.text(dest), weights, values);
+        }
+    }
 }
@@ -0,0 +1,578 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** An immutable version of a graph, which is what ShortestPaths reads.
+ * Nodes keep the indices of the graph they came from, and are grouped into
+ * fixed-size segments of SEGMENT_NODES consecutive indices. Each segment
+ * stores the edges of its nodes in compressed (CSR) form: an offset per node
+ * into one array of neighbor indices and one weight array per metric. There
+ * is one set of segments for outgoing edges and one for incoming edges.
+ * Because nothing is ever modified after construction, any number of threads
+ * can read a snapshot without locking, and a new version produced by
+ * withChanges shares every segment the change did not touch.
+ * A snapshot taken by Graph.snapshot() holds the Graph's own nodes. The
+ * versions of a VersionedGraph hold nodes that belong to no Graph and carry
+ * no edges of their own; their edges are only stored in the segments. */
+public final class GraphSnapshot implements GraphSource {
+
+    // nodes per segment is 1 << SHIFT; the local position of a node inside
+    //  its segment is index & MASK
+    private static final int SHIFT = 6;
+    private static final int SEGMENT_NODES = 1 << SHIFT;
+    private static final int MASK = SEGMENT_NODES - 1;
+
+    /** The edges of SEGMENT_NODES consecutive nodes. The edges of the node at
+     * local position l are those at positions offsets[l] to offsets[l+1]-1 of
+     * neighbors and of each weights[m]. */
+    private static final class Segment {
+        final int[] offsets;
+        final int[] neighbors;
+        final double[][] weights;
+
+        Segment(int[] offsets, int[] neighbors, double[][] weights) {
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+
+        /** Return the number of edges in this segment. */
+        int size() {
+            return offsets[SEGMENT_NODES];
+        }
+    }
+
+    private final long version;
+    private final String[] metricNames;
+
+    // nodes by index, and by id; the map is never modified once published
+    private final Node[] nodes;
+    private final HashMap<String,Node> byId;
+
+    // outgoing and incoming edges, segment s covering indices from
+    //  s * SEGMENT_NODES
+    private final Segment[] out;
+    private final Segment[] in;
+
+    private final int edgeCount;
+
+    // the metric under which edges on no shortest path were left out, or
+    //  null if the snapshot holds every edge
+    private final Metric prunedFor;
+
+    // built on first use; racing threads may each build one, which is
+    //  harmless because all its fields are final
+    private volatile Reachability reachability;
+
+    // result of maxIntegralWeight for each metric asked about so far
+    private final ConcurrentHashMap<Metric,Long> integralBounds =
+            new ConcurrentHashMap<Metric,Long>();
+
+    // result of minWeight for each metric asked about so far
+    private final ConcurrentHashMap<Metric,Double> lowestWeights =
+            new ConcurrentHashMap<Metric,Double>();
+
+    private GraphSnapshot(long version, String[] metricNames, Node[] nodes,
+            HashMap<String,Node> byId, Segment[] out, Segment[] in,
+            int edgeCount, Metric prunedFor) {
+        this.version = version;
+        this.metricNames = metricNames;
+        this.nodes = nodes;
+        this.byId = byId;
+        this.out = out;
+        this.in = in;
+        this.edgeCount = edgeCount;
+        this.prunedFor = prunedFor;
+    }
+
+    /** Return an empty snapshot whose edges carry the named metrics. */
+    static GraphSnapshot empty(String[] metricNames) {
+        return new GraphSnapshot(0, metricNames.clone(), new Node[0],
+                new HashMap<String,Node>(), new Segment[0], new Segment[0], 0,
+                null);
+    }
+
+    /** Return a snapshot of the current contents of g, labelled with the
+     * given version. */
+    static GraphSnapshot of(Graph g, long version) {
+        int n = g.nodeCount();
+        int metrics = g.getMetricNames().length;
+        Node[] nodes = new Node[n];
+        HashMap<String,Node> byId = new HashMap<String,Node>();
+        for (int i = 0; i < n; i++) {
+            nodes[i] = g.nodeAt(i);
+            byId.put(nodes[i].getId(), nodes[i]);
+        }
+
+        int segments = (n + MASK) >>> SHIFT;
+        Segment[] out = new Segment[segments];
+        Segment[] in = new Segment[segments];
+        int edgeCount = 0;
+        for (int s = 0; s < segments; s++) {
+            int first = s << SHIFT;
+            int last = Math.min(n, first + SEGMENT_NODES);
+            int outSize = 0;
+            int inSize = 0;
+            for (int i = first; i < last; i++) {
+                outSize += nodes[i].getDegree();
+                inSize += nodes[i].getInDegree();
+            }
+
+            int[] outOffsets = new int[SEGMENT_NODES + 1];
+            int[] outNeighbors = new int[outSize];
+            double[][] outWeights = new double[metrics][outSize];
+            int[] inOffsets = new int[SEGMENT_NODES + 1];
+            int[] inNeighbors = new int[inSize];
+            double[][] inWeights = new double[metrics][inSize];
+            int k = 0;
+            int j = 0;
+            for (int l = 0; l < SEGMENT_NODES; l++) {
+                outOffsets[l] = k;
+                inOffsets[l] = j;
+                if (first + l >= last) {
+                    continue;
+                }
+                Node node = nodes[first + l];
+                for (int e = 0; e < node.getDegree(); e++, k++) {
+                    outNeighbors[k] = node.getTarget(e).getIndex();
+                    for (int m = 0; m < metrics; m++) {
+                        outWeights[m][k] = node.getWeight(m, e);
+                    }
+                }
+                for (int e = 0; e < node.getInDegree(); e++, j++) {
+                    Node source = node.getSource(e);
+                    inNeighbors[j] = source.getIndex();
+                    for (int m = 0; m < metrics; m++) {
+                        inWeights[m][j] =
+                                source.getWeight(m, node.getSourceEdge(e));
+                    }
+                }
+            }
+            outOffsets[SEGMENT_NODES] = k;
+            inOffsets[SEGMENT_NODES] = j;
+            out[s] = new Segment(outOffsets, outNeighbors, outWeights);
+            in[s] = new Segment(inOffsets, inNeighbors, inWeights);
+            edgeCount += k;
+        }
+        return new GraphSnapshot(version, g.getMetricNames(), nodes, byId,
+                out, in, edgeCount, null);
+    }
+
+    /** Return a copy of this snapshot that shares its edges but has nodes of
+     * its own, which belong to no Graph and carry no edges, so that the
+     * Graph the snapshot was taken from cannot be searched or changed
+     * through them. */
+    GraphSnapshot detached() {
+        Node[] copies = new Node[nodes.length];
+        HashMap<String,Node> ids = new HashMap<String,Node>();
+        for (int i = 0; i < nodes.length; i++) {
+            copies[i] = new Node(null, nodes[i].getId(), i, metricNames.length);
+            ids.put(copies[i].getId(), copies[i]);
+        }
+        return new GraphSnapshot(version, metricNames, copies, ids, out, in,
+                edgeCount, prunedFor);
+    }
+
+    /** Return a new version of this snapshot with the given nodes and edges
+     * added; edges that already exist get the new weights. Nodes named by an
+     * edge are created if needed. Only the segments holding a changed node
+     * are copied, all others are shared with this snapshot. */
+    GraphSnapshot withChanges(ArrayList<String> nodeIds,
+            ArrayList<String> origIds, ArrayList<String> destIds,
+            ArrayList<double[]> edgeWeights) {
+        int metrics = metricNames.length;
+
+        // create the new nodes, copying the id map only if there are any
+        ArrayList<Node> added = new ArrayList<Node>();
+        HashMap<String,Node> ids = byId;
+        ArrayList<String> named = new ArrayList<String>(nodeIds);
+        named.addAll(origIds);
+        named.addAll(destIds);
+        for (String id : named) {
+            if (!ids.containsKey(id)) {
+                if (ids == byId) {
+                    ids = new HashMap<String,Node>(byId);
+                }
+                Node n = new Node(null, id, nodes.length + added.size(),
+                        metrics);
+                ids.put(id, n);
+                added.add(n);
+            }
+        }
+        Node[] newNodes = nodes;
+        if (!added.isEmpty()) {
+            newNodes = Arrays.copyOf(nodes, nodes.length + added.size());
+            for (Node n : added) {
+                newNodes[n.getIndex()] = n;
+            }
+        }
+
+        // resolve the edges to indices
+        int changes = origIds.size();
+        int[] origs = new int[changes];
+        int[] dests = new int[changes];
+        for (int c = 0; c < changes; c++) {
+            if (edgeWeights.get(c).length != metrics) {
+                throw new IllegalArgumentException("Expected " + metrics
+                        + " weights but got " + edgeWeights.get(c).length);
+            }
+            origs[c] = ids.get(origIds.get(c)).getIndex();
+            dests[c] = ids.get(destIds.get(c)).getIndex();
+        }
+
+        int segments = (newNodes.length + MASK) >>> SHIFT;
+        Segment[] newOut = grow(out, segments, metrics);
+        Segment[] newIn = grow(in, segments, metrics);
+        int before = 0;
+        int after = 0;
+        for (int s : changedSegments(origs)) {
+            before += newOut[s].size();
+            newOut[s] = rebuild(newOut[s], s, origs, dests, edgeWeights);
+            after += newOut[s].size();
+        }
+        for (int s : changedSegments(dests)) {
+            newIn[s] = rebuild(newIn[s], s, dests, origs, edgeWeights);
+        }
+        return new GraphSnapshot(version + 1, metricNames, newNodes, ids,
+                newOut, newIn, edgeCount + after - before, null);
+    }
+
+    /* Return segs extended with empty segments to the given length. */
+    private static Segment[] grow(Segment[] segs, int length, int metrics) {
+        Segment[] grown = Arrays.copyOf(segs, length);
+        for (int s = segs.length; s < length; s++) {
+            grown[s] = new Segment(new int[SEGMENT_NODES + 1], new int[0],
+                    new double[metrics][0]);
+        }
+        return grown;
+    }
+
+    /* Return the distinct segments of the given node indices, in order. */
+    private static int[] changedSegments(int[] indices) {
+        int[] segs = new int[indices.length];
+        for (int c = 0; c < indices.length; c++) {
+            segs[c] = indices[c] >>> SHIFT;
+        }
+        Arrays.sort(segs);
+        int distinct = 0;
+        for (int c = 0; c < segs.length; c++) {
+            if (distinct == 0 || segs[distinct - 1] != segs[c]) {
+                segs[distinct++] = segs[c];
+            }
+        }
+        return Arrays.copyOf(segs, distinct);
+    }
+
+    /* Return a copy of segment s of seg with the changes whose owner lies in
+     * it applied: change c adds or overwrites the edge from owner[c] to
+     * other[c] with weights.get(c). Later changes to the same edge win. */
+    private static Segment rebuild(Segment seg, int s, int[] owner,
+            int[] other, ArrayList<double[]> weights) {
+        // the changes in this segment, ordered by local node and then by
+        // their order in the batch
+        long[] keys = new long[owner.length];
+        int count = 0;
+        for (int c = 0; c < owner.length; c++) {
+            if (owner[c] >>> SHIFT == s) {
+                keys[count++] = ((long) (owner[c] & MASK) << 32) | c;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        int metrics = seg.weights.length;
+        int capacity = seg.size() + count;
+        int[] offsets = new int[SEGMENT_NODES + 1];
+        int[] neighbors = new int[capacity];
+        double[][] ws = new double[metrics][capacity];
+        int k = 0;
+        int next = 0;
+        for (int l = 0; l < SEGMENT_NODES; l++) {
+            offsets[l] = k;
+            int start = k;
+            for (int e = seg.offsets[l]; e < seg.offsets[l + 1]; e++, k++) {
+                neighbors[k] = seg.neighbors[e];
+                for (int m = 0; m < metrics; m++) {
+                    ws[m][k] = seg.weights[m][e];
+                }
+            }
+            while (next < count && (int) (keys[next] >>> 32) == l) {
+                int c = (int) keys[next++];
+                int at = start;
+                while (at < k && neighbors[at] != other[c]) {
+                    at++;
+                }
+                if (at == k) {
+                    neighbors[k++] = other[c];
+                }
+                for (int m = 0; m < metrics; m++) {
+                    ws[m][at] = weights.get(c)[m];
+                }
+            }
+        }
+        offsets[SEGMENT_NODES] = k;
+        for (int m = 0; m < metrics; m++) {
+            ws[m] = Arrays.copyOf(ws[m], k);
+        }
+        return new Segment(offsets, Arrays.copyOf(neighbors, k), ws);
+    }
+
+    /** Return a copy of this snapshot, with the same version and nodes,
+     * without the edges listed in removed, which holds (orig << 32 | dest)
+     * index pairs in ascending order. The copy records that it was pruned for
+     * metric, i.e. that the removed edges lie on no shortest path under it. */
+    GraphSnapshot pruned(long[] removed, Metric metric) {
+        Segment[] newOut = new Segment[out.length];
+        Segment[] newIn = new Segment[in.length];
+        for (int s = 0; s < out.length; s++) {
+            newOut[s] = without(out[s], s, removed, false);
+            newIn[s] = without(in[s], s, removed, true);
+        }
+        return new GraphSnapshot(version, metricNames, nodes, byId, newOut,
+                newIn, edgeCount - removed.length, metric);
+    }
+
+    /* Return a copy of segment s of seg without the removed edges. If
+     * incoming is true, seg holds incoming edges, so a node's neighbors are
+     * the origins of its edges. */
+    private static Segment without(Segment seg, int s, long[] removed,
+            boolean incoming) {
+        int metrics = seg.weights.length;
+        int[] offsets = new int[SEGMENT_NODES + 1];
+        int[] neighbors = new int[seg.size()];
+        double[][] ws = new double[metrics][seg.size()];
+        int k = 0;
+        for (int l = 0; l < SEGMENT_NODES; l++) {
+            offsets[l] = k;
+            long node = (s << SHIFT) + l;
+            for (int e = seg.offsets[l]; e < seg.offsets[l + 1]; e++) {
+                long other = seg.neighbors[e];
+                long pair = incoming ? other << 32 | node : node << 32 | other;
+                if (Arrays.binarySearch(removed, pair) >= 0) {
+                    continue;
+                }
+                neighbors[k] = seg.neighbors[e];
+                for (int m = 0; m < metrics; m++) {
+                    ws[m][k] = seg.weights[m][e];
+                }
+                k++;
+            }
+        }
+        offsets[SEGMENT_NODES] = k;
+        for (int m = 0; m < metrics; m++) {
+            ws[m] = Arrays.copyOf(ws[m], k);
+        }
+        return new Segment(offsets, Arrays.copyOf(neighbors, k), ws);
+    }
+
+    /** Return this snapshot, which never changes. */
+    @Override
+    public GraphSnapshot snapshot() {
+        return this;
+    }
+
+    /** Return the version number of this snapshot. Each committed change
+     * produces a snapshot with a higher version. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Return the number of nodes. */
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /** Return the number of edges. */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /** Return the node with the given index.
+     * Precondition: 0 <= index < nodeCount(). */
+    public Node nodeAt(int index) {
+        return nodes[index];
+    }
+
+    /** Return the node with id s, or null if it is not in this snapshot. */
+    public Node getNode(String s) {
+        return byId.get(s);
+    }
+
+    /** Return a read-only view on the map from node ids to nodes. */
+    public Map<String,Node> getNodes() {
+        return Collections.unmodifiableMap(byId);
+    }
+
+    /** Return true if n is a node of this snapshot. */
+    public boolean contains(Node n) {
+        int i = n.getIndex();
+        return i >= 0 && i < nodes.length && nodes[i].equals(n);
+    }
+
+    /** Return the number of edges leaving the node with the given index. */
+    public int degree(int index) {
+        int[] offsets = out[index >>> SHIFT].offsets;
+        return offsets[(index & MASK) + 1] - offsets[index & MASK];
+    }
+
+    /** Return the position of the first edge leaving node index v. The
+     * edges leaving v are at positions firstEdge(v) to endEdge(v) - 1; a
+     * position only identifies an edge together with v, as in target(v, k)
+     * and weight(v, k, metric). */
+    int firstEdge(int v) {
+        return out[v >>> SHIFT].offsets[v & MASK];
+    }
+
+    /** Return the position just after the last edge leaving node index v. */
+    int endEdge(int v) {
+        return out[v >>> SHIFT].offsets[(v & MASK) + 1];
+    }
+
+    /** Return the index of the node that edge k of node index v leads to. */
+    int target(int v, int k) {
+        return out[v >>> SHIFT].neighbors[k];
+    }
+
+    /** Return the cost of edge k of node index v under metric. */
+    double weight(int v, int k, Metric metric) {
+        return metric.weight(out[v >>> SHIFT].weights, k);
+    }
+
+    /** Return the weight in column m of edge k of node index v. */
+    double weight(int v, int k, int m) {
+        return out[v >>> SHIFT].weights[m][k];
+    }
+
+    /** Return the position of the first edge entering node index v. The
+     * edges entering v are at positions firstInEdge(v) to endInEdge(v) - 1,
+     * read with source(v, k) and inWeight(v, k, metric). */
+    int firstInEdge(int v) {
+        return in[v >>> SHIFT].offsets[v & MASK];
+    }
+
+    /** Return the position just after the last edge entering node index
+     * v. */
+    int endInEdge(int v) {
+        return in[v >>> SHIFT].offsets[(v & MASK) + 1];
+    }
+
+    /** Return the index of the node that incoming edge k of node index v
+     * comes from. */
+    int source(int v, int k) {
+        return in[v >>> SHIFT].neighbors[k];
+    }
+
+    /** Return the cost of incoming edge k of node index v under metric. */
+    double inWeight(int v, int k, Metric metric) {
+        return metric.weight(in[v >>> SHIFT].weights, k);
+    }
+
+    /** Return true if this snapshot and other share, rather than copy, the
+     * storage of the outgoing edges of node index v. */
+    boolean sharesOutEdges(GraphSnapshot other, int v) {
+        return out[v >>> SHIFT] == other.out[v >>> SHIFT];
+    }
+
+    /** Return true if this snapshot and other share, rather than copy, the
+     * storage of the incoming edges of node index v. */
+    boolean sharesInEdges(GraphSnapshot other, int v) {
+        return in[v >>> SHIFT] == other.in[v >>> SHIFT];
+    }
+
+    /** Return the number of edges entering the node with the given index. */
+    public int inDegree(int index) {
+        int[] offsets = in[index >>> SHIFT].offsets;
+        return offsets[(index & MASK) + 1] - offsets[index & MASK];
+    }
+
+    /** Return the names of the metrics stored with each edge, in column
+     * order. */
+    public String[] getMetricNames() {
+        return metricNames.clone();
+    }
+
+    /** Return the metric this snapshot was pruned for (see PrunedGraph), or
+     * null if it holds every edge. A pruned snapshot only gives correct
+     * shortest paths under that metric. */
+    public Metric getPrunedMetric() {
+        return prunedFor;
+    }
+
+    /** Throw IllegalArgumentException if metric refers to weight columns
+     * this snapshot does not have or has a negative coefficient, or if this
+     * snapshot was pruned for a metric other than metric, whose shortest
+     * paths may use edges it lacks. */
+    void checkMetric(Metric metric) {
+        metric.check(metricNames.length);
+        if (prunedFor != null && !prunedFor.equals(metric)) {
+            throw new IllegalArgumentException("Graph was pruned for metric "
+                    + prunedFor + ", not " + metric);
+        }
+    }
+
+    /** Return the metric that selects the weight column with the given name.
+     * Throws IllegalArgumentException if there is no such metric. */
+    public Metric metric(String name) {
+        return Metric.named(metricNames, name);
+    }
+
+    /** Return the largest edge weight under metric if every weight is a
+     * non-negative integer, and -1 otherwise. Integer frontier queues can
+     * only be used in the first case. The result is cached per metric. */
+    long maxIntegralWeight(Metric metric) {
+        Long bound = integralBounds.get(metric);
+        if (bound == null) {
+            bound = scanWeights(metric);
+            integralBounds.put(metric, bound);
+        }
+        return bound;
+    }
+
+    /** Return the smallest edge weight under metric, NaN if some weight is
+     * NaN, or infinity if there are no edges. The result is cached per
+     * metric. */
+    double minWeight(Metric metric) {
+        Double lowest = lowestWeights.get(metric);
+        if (lowest == null) {
+            double min = Double.POSITIVE_INFINITY;
+            for (Segment seg : out) {
+                for (int k = 0; k < seg.size(); k++) {
+                    min = Math.min(min, metric.weight(seg.weights, k));
+                }
+            }
+            lowest = min;
+            lowestWeights.put(metric, lowest);
+        }
+        return lowest;
+    }
+
+    /* Compute maxIntegralWeight(metric) from the outgoing segments. */
+    private long scanWeights(Metric metric) {
+        long max = 0;
+        for (Segment seg : out) {
+            for (int k = 0; k < seg.size(); k++) {
+                double w = metric.weight(seg.weights, k);
+                if (w < 0 || w != Math.rint(w) || w >= Long.MAX_VALUE) {
+                    return -1;
+                }
+                max = Math.max(max, (long) w);
+            }
+        }
+        return max;
+    }
+
+    /** Return the strongly connected components and reachability labels of
+     * this snapshot, computing them on first use. */
+    public Reachability getReachability() {
+        Reachability r = reachability;
+        if (r == null) {
+            r = new Reachability(this);
+            reachability = r;
+        }
+        return r;
+    }
+}
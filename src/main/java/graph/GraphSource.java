@@ -0,0 +1,12 @@
+package graph;
+
+/** Anything that can supply a consistent, immutable view of a graph for
+ * queries: a Graph (its current contents), a VersionedGraph (its latest
+ * committed version) or a GraphSnapshot (itself). ShortestPaths takes one
+ * snapshot per computation, so a query never sees a half-applied update. */
+public interface GraphSource {
+
+    /** Return an immutable snapshot of the current contents of the graph. */
+    GraphSnapshot snapshot();
+
+}
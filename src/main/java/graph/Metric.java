@@ -0,0 +1,155 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Selects, at query time, the cost of an edge from the weights stored with
+ * it. A Metric is either a single weight column of the graph or a weighted
+ * linear combination of its columns. Metrics for a particular graph are best
+ * obtained by column name through Graph.metric.
+ * Example usage:
+ *     Graph g = new DB1BParser("distance", "coupons").parse() // after open
+ *     sp.setMetric(g.metric("coupons"));
+ *     sp.setMetric(g.metric(new String[] {"distance", "coupons"},
+ *                           new double[] {1.0, 250.0})); */
+public final class Metric {
+
+    /** The first weight column, which is the only one of a Graph created
+     * without metric names. */
+    public static final Metric PRIMARY = column(0);
+
+    // index of the selected column, or -1 if this is a combination
+    private final int column;
+
+    // coefficients[m] multiplies the weight in column m; null for a column
+    private final double[] coefficients;
+
+    private Metric(int column, double[] coefficients) {
+        this.column = column;
+        this.coefficients = coefficients;
+    }
+
+    /** Return the metric that uses weight column m unchanged. */
+    public static Metric column(int m) {
+        if (m < 0) {
+            throw new IllegalArgumentException("Negative metric column " + m);
+        }
+        return new Metric(m, null);
+    }
+
+    /** Return the metric whose cost is the sum over m of coefficients[m]
+     * times the weight in column m. Columns beyond the end of coefficients
+     * are ignored. Searches reject the metric if a coefficient is negative,
+     * since edge costs must not be. */
+    public static Metric combination(double... coefficients) {
+        return new Metric(-1, coefficients.clone());
+    }
+
+    /** Return the metric among metricNames called name, compared without
+     * regard to case. Throws IllegalArgumentException if there is none. */
+    static Metric named(String[] metricNames, String name) {
+        return column(indexOf(metricNames, name));
+    }
+
+    /** Return the metric that sums coefficients[k] times the column among
+     * metricNames called names[k]. Throws IllegalArgumentException if the
+     * arrays differ in length or a name is unknown. */
+    static Metric named(String[] metricNames, String[] names,
+            double[] coefficients) {
+        if (names.length != coefficients.length) {
+            throw new IllegalArgumentException(
+                    "Need one coefficient per metric name");
+        }
+        double[] byColumn = new double[metricNames.length];
+        for (int k = 0; k < names.length; k++) {
+            byColumn[indexOf(metricNames, names[k])] += coefficients[k];
+        }
+        return combination(byColumn);
+    }
+
+    /* Return the position of name in metricNames. */
+    private static int indexOf(String[] metricNames, String name) {
+        for (int m = 0; m < metricNames.length; m++) {
+            if (metricNames[m].equalsIgnoreCase(name)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + name);
+    }
+
+    /** Throw IllegalArgumentException unless this metric can be used on
+     * edges with the given number of weight columns: it must only refer to
+     * existing columns and have no negative coefficients. */
+    void check(int columns) {
+        if (column >= columns) {
+            throw new IllegalArgumentException("No metric column " + column
+                    + " in a graph with " + columns);
+        }
+        if (coefficients != null) {
+            if (coefficients.length > columns) {
+                throw new IllegalArgumentException("Expected at most "
+                        + columns + " coefficients but got "
+                        + coefficients.length);
+            }
+            for (double c : coefficients) {
+                if (!(c >= 0)) {
+                    throw new IllegalArgumentException(
+                            "Negative metric coefficient " + c);
+                }
+            }
+        }
+    }
+
+    /** Return the cost of edge i of node from under this metric.
+     * Precondition: 0 <= i < from.getDegree(). */
+    public double weight(Node from, int i) {
+        if (column >= 0) {
+            return from.getWeight(column, i);
+        }
+        double cost = 0;
+        for (int m = 0; m < coefficients.length; m++) {
+            if (coefficients[m] != 0) {
+                cost += coefficients[m] * from.getWeight(m, i);
+            }
+        }
+        return cost;
+    }
+
+    /** Return the cost of the edge at position k of weight columns stored
+     * as columns[m][k], such as those of a GraphSnapshot segment. */
+    double weight(double[][] columns, int k) {
+        if (column >= 0) {
+            return columns[column][k];
+        }
+        double cost = 0;
+        for (int m = 0; m < coefficients.length; m++) {
+            if (coefficients[m] != 0) {
+                cost += coefficients[m] * columns[m][k];
+            }
+        }
+        return cost;
+    }
+
+    /** equals: two metrics are equal if they select the same column or use
+     * the same coefficients */
+    @Override
+    public boolean equals(Object ob) {
+        if (!(ob instanceof Metric)) {
+            return false;
+        }
+        Metric other = (Metric) ob;
+        return column == other.column
+                && Arrays.equals(coefficients, other.coefficients);
+    }
+
+    /** Hashes the column and coefficients */
+    @Override
+    public int hashCode() {
+        return 31 * column + Arrays.hashCode(coefficients);
+    }
+
+    /** returns the column index, or the list of coefficients */
+    @Override
+    public String toString() {
+        return column >= 0 ? "column " + column : Arrays.toString(coefficients);
+    }
+}
@@ -7,25 +7,66 @@
 
 package graph;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 /** A Node class for a adjacency-list representation of a graph.  Nodes are
- * identified by a unique String identifier and edges are stored as a Neighbor
- * map that associates each neighboring node with the weight of the edge to
- * that node. It is the responsibility of the user of this class to avoid
- * making multiple Nodes with the same unique identifier. */
+ * identified by a unique String identifier and edges are stored in parallel
+ * arrays: the target of each edge, and for every metric (weight column) of
+ * the graph, the weight of each edge under that metric. Every edge is also
+ * recorded in the destination's predecessor arrays, so the graph can be
+ * searched backwards without rebuilding it. Only the nodes of a Graph store
+ * edges: the nodes of a VersionedGraph are shared by all of its versions, so
+ * their edges live in each GraphSnapshot and the edge accessors of such a
+ * node report none. It is the responsibility of the user of this class to
+ * avoid making multiple Nodes with the same unique identifier. */
 public class Node {
 
     private final String id; // unique identifier for this node
 
-    // for each node v that has an edge from this to v, neighbors maps
-    //  v -> the weight of the edge
-     private HashMap<Node,Double> neighbors;
+    // position of this node in its graph's creation order, or -1 if the node
+    //  was not created by a Graph
+    private final int index;
 
-    /** Constructor: create node with the given id */
+    // the Graph that created this node and owns its edges, or null
+    private final Graph graph;
+
+    // for each edge i from this node, targets[i] is the node the edge leads
+    //  to and weights[m][i] is the weight of the edge under metric m
+    private Node[] targets;
+    private double[][] weights;
+    private int degree; // number of edges in use in targets and weights
+
+    // maps each neighbor to the position of the edge to it, so that adding an
+    //  existing edge overwrites it
+    private HashMap<Node,Integer> edgeIndex;
+
+    // the reverse adjacency index: for each edge j into this node,
+    //  sources[j] is the node it comes from and sourceEdges[j] the position of
+    //  the edge in sources[j]'s arrays
+    private Node[] sources;
+    private int[] sourceEdges;
+    private int inDegree; // number of edges in use in sources
+
+    /** Constructor: create node with the given id and a single weight per
+     * edge. */
     public Node(String id) {
+        this(null, id, -1, 1);
+    }
+
+    /** Constructor: create node of graph with the given id and position in
+     * the graph that stores the given number of weights (metrics) per edge.
+     * graph may be null for nodes that only exist in a GraphSnapshot. */
+    Node(Graph graph, String id, int index, int metrics) {
+        this.graph = graph;
         this.id = id;
-        neighbors = new HashMap<Node,Double>();
+        this.index = index;
+        targets = new Node[0];
+        weights = new double[metrics][0];
+        edgeIndex = new HashMap<Node,Integer>();
+        sources = new Node[0];
+        sourceEdges = new int[0];
     }
 
     /** Return this node's unique identifier */
@@ -33,16 +74,138 @@ public class Node {
         return id;
     }
 
-    /** Return the map that associates each neighbor with the weight of the
-     * edge to that neighbor. */
-    public HashMap<Node,Double> getNeighbors() {
+    /** Return this node's position among the nodes of its graph, from 0 to
+     * the graph's node count - 1, or -1 if it was not created by a Graph. */
+    public int getIndex() {
+        return index;
+    }
+
+    /** Return the Graph that created this node, or null. */
+    Graph getGraph() {
+        return graph;
+    }
+
+    /** Return a new map that associates each neighbor with the weight of the
+     * edge to that neighbor under the first metric. */
+    public Map<Node,Double> getNeighbors() {
+        HashMap<Node,Double> neighbors = new HashMap<Node,Double>();
+        for (int i = 0; i < degree; i++) {
+            neighbors.put(targets[i], weights[0][i]);
+        }
         return neighbors;
     }
 
-    /** Add an edge to neighbor with the given weight. If such an edge already
-     * existed, upate its weight. */
+    /** Return a new map that associates each node with an edge to this node
+     * with the weight of that edge under the first metric. */
+    public Map<Node,Double> getPredecessors() {
+        HashMap<Node,Double> predecessors = new HashMap<Node,Double>();
+        for (int j = 0; j < inDegree; j++) {
+            predecessors.put(sources[j], sources[j].weights[0][sourceEdges[j]]);
+        }
+        return predecessors;
+    }
+
+    /** Return the number of edges leaving this node. */
+    public int getDegree() {
+        return degree;
+    }
+
+    /** Return the target of edge i. Precondition: 0 <= i < getDegree(). */
+    public Node getTarget(int i) {
+        return targets[i];
+    }
+
+    /** Return the weight of edge i under metric m.
+     * Precondition: 0 <= i < getDegree() and m is a metric of this node. */
+    public double getWeight(int m, int i) {
+        return weights[m][i];
+    }
+
+    /** Return the number of weights stored per edge. */
+    public int getMetricCount() {
+        return weights.length;
+    }
+
+    /** Return the number of edges entering this node. */
+    public int getInDegree() {
+        return inDegree;
+    }
+
+    /** Return the origin of incoming edge j.
+     * Precondition: 0 <= j < getInDegree(). */
+    public Node getSource(int j) {
+        return sources[j];
+    }
+
+    /** Return the position of incoming edge j among the edges of
+     * getSource(j). Precondition: 0 <= j < getInDegree(). */
+    public int getSourceEdge(int j) {
+        return sourceEdges[j];
+    }
+
+    /** Add an edge to neighbor with the given weight, for nodes with a
+     * single metric. If such an edge already existed, upate its weight.
+     * Throws IllegalArgumentException if the node has more than one metric,
+     * whose other weights would otherwise be left at 0; use the double[]
+     * overload for those. */
     public void addNeighbor(Node neighbor, double weight) {
-        neighbors.put(neighbor, weight);
+        if (weights.length != 1) {
+            throw new IllegalArgumentException("Expected " + weights.length
+                    + " weights but got 1");
+        }
+        int i = edge(neighbor);
+        weights[0][i] = weight;
+    }
+
+    /** Add an edge to neighbor with one weight per metric. If such an edge
+     * already existed, upate its weights. The reverse index of neighbor is
+     * kept in sync. */
+    public void addNeighbor(Node neighbor, double[] edgeWeights) {
+        if (edgeWeights.length != weights.length) {
+            throw new IllegalArgumentException("Expected " + weights.length
+                    + " weights but got " + edgeWeights.length);
+        }
+        int i = edge(neighbor);
+        for (int m = 0; m < weights.length; m++) {
+            weights[m][i] = edgeWeights[m];
+        }
+    }
+
+    /* Return the position of the edge to neighbor, creating it (and its
+     * entry in neighbor's reverse index) if it does not exist yet. Either way
+     * its weights are about to change, so the graph's snapshot is stale. */
+    private int edge(Node neighbor) {
+        if (graph != null) {
+            graph.edgeChanged();
+        }
+        Integer existing = edgeIndex.get(neighbor);
+        if (existing != null) {
+            return existing;
+        }
+        if (degree == targets.length) {
+            int capacity = Math.max(2, degree * 2);
+            targets = Arrays.copyOf(targets, capacity);
+            for (int m = 0; m < weights.length; m++) {
+                weights[m] = Arrays.copyOf(weights[m], capacity);
+            }
+        }
+        int i = degree++;
+        targets[i] = neighbor;
+        edgeIndex.put(neighbor, i);
+        neighbor.addSource(this, i);
+        return i;
+    }
+
+    /* Record in the reverse index that edge i of source leads here. */
+    private void addSource(Node source, int i) {
+        if (inDegree == sources.length) {
+            int capacity = Math.max(2, inDegree * 2);
+            sources = Arrays.copyOf(sources, capacity);
+            sourceEdges = Arrays.copyOf(sourceEdges, capacity);
+        }
+        sources[inDegree] = source;
+        sourceEdges[inDegree] = i;
+        inDegree++;
     }
 
     /** returns the Node's unique identifier */
@@ -0,0 +1,110 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Orders in which Graph.reordered can relabel the nodes of a graph so that
+ * nodes that are close in the graph also get close indices. Searches then
+ * touch fewer distinct cache lines of the per-node arrays and of the edge
+ * segments. Edges count in both directions when deciding which nodes are
+ * close.
+ *     BFS         breadth-first order, each component started from its
+ *                 node of highest degree
+ *     RCM         reverse Cuthill-McKee: breadth-first from a node of lowest
+ *                 degree, visiting neighbors by increasing degree, reversed
+ *     HUBS_FIRST  by decreasing degree, so the busiest airports share the
+ *                 first cache lines */
+public enum NodeOrder {
+    BFS, RCM, HUBS_FIRST;
+
+    /** Return the new order of the nodes of g: element k is the index in g
+     * of the node that gets index k. */
+    int[] permutation(GraphSnapshot g) {
+        int n = g.nodeCount();
+        int[] degree = new int[n];
+        for (int i = 0; i < n; i++) {
+            degree[i] = g.degree(i) + g.inDegree(i);
+        }
+        if (this == HUBS_FIRST) {
+            return byDegree(degree, false);
+        }
+
+        // roots are tried in this order; each one not reached yet starts a
+        // breadth-first search of its component
+        int[] roots = byDegree(degree, this == RCM);
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        int head = 0;
+        int tail = 0;
+        for (int root : roots) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            order[tail++] = root;
+            while (head < tail) {
+                int v = order[head++];
+                int first = tail;
+                tail = enqueue(g, v, false, order, tail, visited);
+                tail = enqueue(g, v, true, order, tail, visited);
+                if (this == RCM) {
+                    sortByDegree(order, first, tail, degree);
+                }
+            }
+        }
+        if (this == RCM) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+        }
+        return order;
+    }
+
+    /* Append the unvisited neighbors of v in g, across its incoming edges if
+     * incoming is true and its outgoing edges otherwise, to order[tail..],
+     * marking them visited, and return the new tail. */
+    private static int enqueue(GraphSnapshot g, int v, boolean incoming,
+            int[] order, int tail, boolean[] visited) {
+        int first = incoming ? g.firstInEdge(v) : g.firstEdge(v);
+        int end = incoming ? g.endInEdge(v) : g.endEdge(v);
+        for (int e = first; e < end; e++) {
+            int w = incoming ? g.source(v, e) : g.target(v, e);
+            if (!visited[w]) {
+                visited[w] = true;
+                order[tail++] = w;
+            }
+        }
+        return tail;
+    }
+
+    /* Return the indices 0 .. degree.length - 1 sorted by degree, ascending
+     * or descending; ties are broken by index. */
+    private static int[] byDegree(int[] degree, boolean ascending) {
+        long[] keys = new long[degree.length];
+        for (int i = 0; i < keys.length; i++) {
+            long d = ascending ? degree[i] : -degree[i];
+            keys[i] = (d << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /* Sort order[from..to-1] by increasing degree; ties are broken by
+     * index. */
+    private static void sortByDegree(int[] order, int from, int to,
+            int[] degree) {
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            keys[i - from] = ((long) degree[order[i]] << 32) | order[i];
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++) {
+            order[i] = (int) keys[i - from];
+        }
+    }
+}
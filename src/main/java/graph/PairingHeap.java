@@ -0,0 +1,120 @@
+package graph;
+
+/** Indexed pairing heap. Every node is a tree node linked to its first child,
+ * its next sibling and its left neighbor (the previous sibling, or the
+ * parent for a first child), all stored as node indices in arrays. Insert
+ * and decrease-key are O(1) melds with the root; poll merges the root's
+ * children with the usual two-pass pairing. */
+final class PairingHeap implements Frontier {
+
+    private final double[] key;
+    private final int[] child;    // first child, or -1
+    private final int[] sibling;  // next sibling, or -1
+    private final int[] left;     // previous sibling or parent, or -1
+    private final int[] stamp;    // equal to epoch if queued since clear()
+    private final boolean[] polled; // true if removed since it was queued
+    private final int[] pairs;    // scratch for the pairing passes
+    private int epoch = 1;
+    private int root = -1;
+
+    /** Constructor: create a heap for node indices 0 .. capacity - 1. */
+    PairingHeap(int capacity) {
+        key = new double[capacity];
+        child = new int[capacity];
+        sibling = new int[capacity];
+        left = new int[capacity];
+        stamp = new int[capacity];
+        polled = new boolean[capacity];
+        pairs = new int[capacity];
+    }
+
+    @Override
+    public void push(int node, double priority) {
+        if (stamp[node] != epoch) {
+            stamp[node] = epoch;
+            polled[node] = false;
+            key[node] = priority;
+            child[node] = sibling[node] = left[node] = -1;
+            root = meld(root, node);
+        } else if (!polled[node] && priority < key[node]) {
+            key[node] = priority;
+            if (node != root) {
+                // cut the subtree of node out and meld it with the root
+                int l = left[node];
+                if (child[l] == node) {
+                    child[l] = sibling[node];
+                } else {
+                    sibling[l] = sibling[node];
+                }
+                if (sibling[node] != -1) {
+                    left[sibling[node]] = l;
+                }
+                sibling[node] = left[node] = -1;
+                root = meld(root, node);
+            }
+        }
+    }
+
+    @Override
+    public int poll() {
+        int top = root;
+        polled[top] = true;
+        root = mergePairs(child[top]);
+        return top;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == -1;
+    }
+
+    @Override
+    public void clear() {
+        epoch++;
+        root = -1;
+    }
+
+    /* Link two roots (either may be -1) and return the new root. */
+    private int meld(int a, int b) {
+        if (a == -1) {
+            return b;
+        }
+        if (b == -1) {
+            return a;
+        }
+        if (key[b] < key[a]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        sibling[b] = child[a];
+        if (child[a] != -1) {
+            left[child[a]] = b;
+        }
+        child[a] = b;
+        left[b] = a;
+        return a;
+    }
+
+    /* Merge the sibling list starting at first into one tree: meld pairs
+     * left to right, then meld the results right to left. */
+    private int mergePairs(int first) {
+        int count = 0;
+        int x = first;
+        while (x != -1) {
+            int a = x;
+            int b = sibling[a];
+            x = b == -1 ? -1 : sibling[b];
+            sibling[a] = left[a] = -1;
+            if (b != -1) {
+                sibling[b] = left[b] = -1;
+            }
+            pairs[count++] = meld(a, b);
+        }
+        int result = -1;
+        for (int i = count - 1; i >= 0; i--) {
+            result = meld(pairs[i], result);
+        }
+        return result;
+    }
+}
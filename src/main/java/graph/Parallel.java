@@ -0,0 +1,44 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/** Runs one task per worker thread and waits for all of them, for the
+ * analyses that split their work across cores (PrunedGraph, Centrality).
+ * The workers usually share an AtomicInteger from which they take blocks of
+ * nodes, and each keeps its own results, which the caller combines once
+ * run returns. */
+final class Parallel {
+
+    private Parallel() {
+    }
+
+    /** Call task.accept(t) for every t from 0 to threads - 1, each on its own
+     * thread, and return once all of them are done. If a task throws, throw
+     * IllegalStateException with the first failure as the cause, so that
+     * partial results are never used; what names the work in the message. */
+    static void run(int threads, String what, IntConsumer task) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                running.add(pool.submit(() -> task.accept(id)));
+            }
+            for (Future<?> f : running) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(what + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(what + " was interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A view of a graph without the edges that lie on no shortest path. An
+ * edge from u to v of weight w is dominated if some other path from u to v
+ * is strictly shorter than w; replacing the edge by that path shortens any
+ * path through it, so dropping it changes no distance and no path that is
+ * the unique shortest one. Airline graphs have many such edges around hubs,
+ * where a direct flight is longer than a connection. They are found with
+ * one witness search per node, a Dijkstra from u limited to the longest edge
+ * leaving u, run in parallel across nodes.
+ * A PrunedGraph is a GraphSource, so ShortestPaths uses it like the graph
+ * itself; the pruned snapshot is rebuilt whenever the underlying graph gets
+ * a new version. Pruning holds for one metric, and searches under any other
+ * metric, or with a hop budget, are rejected.
+ * Example usage:
+ *     ShortestPaths sp = new ShortestPaths(new PrunedGraph(graph));
+ *     sp.compute(graph.getNode("ORD")); */
+public class PrunedGraph implements GraphSource {
+
+    // nodes a worker takes at a time from the shared counter
+    private static final int BLOCK = 64;
+
+    private final GraphSource base;
+    private final Metric metric;
+    private final int threads;
+
+    /** A pruned snapshot together with the number of edges pruned from it. */
+    private static final class State {
+        final GraphSnapshot pruned;
+        final int removed;
+
+        State(GraphSnapshot pruned, int removed) {
+            this.pruned = pruned;
+            this.removed = removed;
+        }
+    }
+
+    // the state for the latest version of base seen so far, or null
+    private volatile State state;
+
+    /** Constructor: prune source under the first metric, using every
+     * available core. */
+    public PrunedGraph(GraphSource source) {
+        this(source, Metric.PRIMARY,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Constructor: prune source under metric, running the witness searches
+     * on the given number of threads. */
+    public PrunedGraph(GraphSource source, Metric metric, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.base = source;
+        this.metric = metric;
+        this.threads = threads;
+    }
+
+    /** Return the pruned version of the current snapshot of the underlying
+     * graph, pruning it first if it changed since the last call. */
+    @Override
+    public GraphSnapshot snapshot() {
+        return current().pruned;
+    }
+
+    /** Return the metric the edges were pruned for. */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /** Return the number of edges removed from the current snapshot. */
+    public int removedEdgeCount() {
+        return current().removed;
+    }
+
+    /** Print how many edges pruning removed from the current snapshot. */
+    public void report() {
+        State s = current();
+        int remaining = s.pruned.edgeCount();
+        int total = remaining + s.removed;
+        double percent = total == 0 ? 0 : 100.0 * s.removed / total;
+        System.out.println("Pruned " + s.removed + " of " + total
+                + " edges (" + String.format("%.1f", percent) + "%) under "
+                + metric);
+        System.out.println(remaining + " edges remain.");
+    }
+
+    /* Return the state for the current version of base, pruning it if the
+     * state is missing or stale. Racing threads may each prune; the results
+     * are equal. */
+    private State current() {
+        GraphSnapshot full = base.snapshot();
+        full.checkMetric(metric);
+        State s = state;
+        if (s == null || s.pruned.getVersion() != full.getVersion()) {
+            long[] removed = dominatedEdges(full);
+            s = new State(full.pruned(removed, metric), removed.length);
+            state = s;
+        }
+        return s;
+    }
+
+    /* Return the (orig << 32 | dest) index pairs of the dominated edges of
+     * snap, in ascending order. Nodes are handed out to the worker threads in
+     * small blocks; each worker keeps its own search state and list. */
+    private long[] dominatedEdges(GraphSnapshot snap) {
+        AtomicInteger next = new AtomicInteger();
+        long[][] found = new long[threads][];
+        Parallel.run(threads, "Pruning",
+                t -> found[t] = witnessSearches(snap, next));
+
+        int count = 0;
+        for (long[] part : found) {
+            count += part.length;
+        }
+        long[] removed = new long[count];
+        int k = 0;
+        for (long[] part : found) {
+            System.arraycopy(part, 0, removed, k, part.length);
+            k += part.length;
+        }
+        Arrays.sort(removed);
+        return removed;
+    }
+
+    /* Run witness searches from blocks of nodes taken from next until all
+     * nodes are done, and return the dominated edges found. */
+    private long[] witnessSearches(GraphSnapshot snap, AtomicInteger next) {
+        RangeQuery rq = new RangeQuery(snap);
+        rq.setMetric(metric);
+        ArrayList<Long> removed = new ArrayList<Long>();
+        int n = snap.nodeCount();
+        int first;
+        while ((first = next.getAndAdd(BLOCK)) < n) {
+            for (int u = first; u < Math.min(n, first + BLOCK); u++) {
+                int firstEdge = snap.firstEdge(u);
+                int endEdge = snap.endEdge(u);
+                if (firstEdge == endEdge) {
+                    continue;
+                }
+                double longest = 0;
+                for (int e = firstEdge; e < endEdge; e++) {
+                    longest = Math.max(longest, snap.weight(u, e, metric));
+                }
+                // the distance to v is below w only if some other path beats
+                // the edge itself
+                rq.compute(snap.nodeAt(u), longest, RangeQuery.UNLIMITED_HOPS);
+                for (int e = firstEdge; e < endEdge; e++) {
+                    int v = snap.target(u, e);
+                    if (rq.distanceTo(v) < snap.weight(u, e, metric)) {
+                        removed.add((long) u << 32 | v);
+                    }
+                }
+            }
+        }
+        long[] result = new long[removed.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = removed.get(k);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package graph;
+
+/** Indexed min-heap with four children per node, storing node indices in an
+ * array and each node's position in another so that decrease-key is
+ * O(log n). A 4-ary heap is shallower than a binary one and compares
+ * children that sit next to each other in memory. */
+final class QuaternaryHeap implements Frontier {
+
+    private final int[] heap;      // queued nodes in heap order
+    private final double[] key;    // priority of each node
+    private final int[] position;  // position of each node in heap
+    private final int[] stamp;     // position is valid iff stamp == epoch
+    private int epoch = 1;
+    private int size;
+
+    /** Constructor: create a heap for node indices 0 .. capacity - 1. */
+    QuaternaryHeap(int capacity) {
+        heap = new int[capacity];
+        key = new double[capacity];
+        position = new int[capacity];
+        stamp = new int[capacity];
+    }
+
+    @Override
+    public void push(int node, double priority) {
+        if (stamp[node] != epoch) {
+            stamp[node] = epoch;
+            key[node] = priority;
+            position[node] = size;
+            heap[size++] = node;
+            siftUp(size - 1);
+        } else if (position[node] >= 0 && priority < key[node]) {
+            key[node] = priority;
+            siftUp(position[node]);
+        }
+    }
+
+    @Override
+    public int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        epoch++;
+        size = 0;
+    }
+
+    /* Move the node at position i up until its parent is no larger. */
+    private void siftUp(int i) {
+        int node = heap[i];
+        double k = key[node];
+        while (i > 0) {
+            int parent = (i - 1) >>> 2;
+            int p = heap[parent];
+            if (key[p] <= k) {
+                break;
+            }
+            heap[i] = p;
+            position[p] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+
+    /* Move the node at position i down until its children are no smaller. */
+    private void siftDown(int i) {
+        int node = heap[i];
+        double k = key[node];
+        while (true) {
+            int first = 4 * i + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int end = Math.min(first + 4, size);
+            for (int c = first + 1; c < end; c++) {
+                if (key[heap[c]] < key[heap[best]]) {
+                    best = c;
+                }
+            }
+            if (key[heap[best]] >= k) {
+                break;
+            }
+            heap[i] = heap[best];
+            position[heap[i]] = i;
+            i = best;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+}
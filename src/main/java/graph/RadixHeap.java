@@ -0,0 +1,138 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Monotone radix heap for non-negative integral priorities. Bucket 0 holds
+ * entries equal to the last polled priority; bucket b > 0 holds entries
+ * whose highest bit differing from it is bit b - 1. When bucket 0 runs dry,
+ * the first non-empty bucket is emptied into lower ones around its minimum,
+ * so every entry moves down at most 64 times. Decrease-key adds a new entry
+ * and leaves the old one behind; entries that no longer match the node's
+ * priority are skipped. */
+final class RadixHeap implements Frontier {
+
+    private static final int BUCKETS = 65;
+
+    // entries of each bucket: node and its priority at the time of the push
+    private final int[][] nodes = new int[BUCKETS][];
+    private final long[][] keys = new long[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+
+    private final long[] best;    // current priority of each queued node
+    private final int[] stamp;    // equal to epoch if queued since clear()
+    private final boolean[] polled; // true if removed since it was queued
+    private int epoch = 1;
+    private int live;             // number of queued nodes
+    private long last;            // last polled priority
+
+    /** Constructor: create a heap for node indices 0 .. capacity - 1. */
+    RadixHeap(int capacity) {
+        best = new long[capacity];
+        stamp = new int[capacity];
+        polled = new boolean[capacity];
+        for (int b = 0; b < BUCKETS; b++) {
+            nodes[b] = new int[4];
+            keys[b] = new long[4];
+        }
+    }
+
+    @Override
+    public void push(int node, double priority) {
+        long k = (long) priority;
+        if (stamp[node] != epoch) {
+            stamp[node] = epoch;
+            polled[node] = false;
+            live++;
+        } else if (polled[node] || k >= best[node]) {
+            return;
+        }
+        best[node] = k;
+        add(bucket(k), node, k);
+    }
+
+    @Override
+    public int poll() {
+        while (true) {
+            if (sizes[0] == 0) {
+                redistribute();
+            }
+            int node = nodes[0][--sizes[0]];
+            long k = keys[0][sizes[0]];
+            if (valid(node, k)) {
+                polled[node] = true;
+                live--;
+                return node;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    @Override
+    public void clear() {
+        epoch++;
+        live = 0;
+        last = 0;
+        Arrays.fill(sizes, 0);
+    }
+
+    /* Return true if the entry (node, k) still describes a queued node. */
+    private boolean valid(int node, long k) {
+        return !polled[node] && best[node] == k;
+    }
+
+    /* Return the bucket for priority k relative to last. */
+    private int bucket(long k) {
+        return k == last ? 0 : 64 - Long.numberOfLeadingZeros(k ^ last);
+    }
+
+    /* Append an entry to bucket b. */
+    private void add(int b, int node, long k) {
+        if (sizes[b] == nodes[b].length) {
+            nodes[b] = Arrays.copyOf(nodes[b], sizes[b] * 2);
+            keys[b] = Arrays.copyOf(keys[b], sizes[b] * 2);
+        }
+        nodes[b][sizes[b]] = node;
+        keys[b][sizes[b]] = k;
+        sizes[b]++;
+    }
+
+    /* Advance last to the smallest live priority and move the entries of
+     * its bucket into lower buckets, dropping stale ones. */
+    private void redistribute() {
+        int b = 1;
+        while (true) {
+            // find the first bucket with a live entry
+            while (sizes[b] == 0) {
+                b++;
+            }
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < sizes[b]; i++) {
+                if (valid(nodes[b][i], keys[b][i])) {
+                    min = Math.min(min, keys[b][i]);
+                }
+            }
+            if (min != Long.MAX_VALUE) {
+                last = min;
+                break;
+            }
+            sizes[b] = 0; // only stale entries
+        }
+        int[] ns = nodes[b];
+        long[] ks = keys[b];
+        int count = sizes[b];
+        // the entries move to strictly lower buckets, so new arrays are
+        // needed only for bucket b itself
+        nodes[b] = new int[ns.length];
+        keys[b] = new long[ks.length];
+        sizes[b] = 0;
+        for (int i = 0; i < count; i++) {
+            if (valid(ns[i], ks[i])) {
+                add(bucket(ks[i]), ns[i], ks[i]);
+            }
+        }
+    }
+}
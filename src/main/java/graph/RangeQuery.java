@@ -0,0 +1,311 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Answers range queries such as "every airport within 1500 miles of ORD"
+ * or "within 2 legs of ORD": a Dijkstra search that never pushes a node
+ * beyond the distance budget or the hop budget, so it only touches the
+ * nodes in range and their edges. All scratch state is kept between calls
+ * and reset lazily through an epoch stamp, so a query costs time in
+ * proportion to the size of its answer rather than of the graph.
+ * The answer of the last query is read with size(), getNode(k),
+ * getDistance(k) and getHops(k), by increasing distance.
+ * Sample usage:
+ *     RangeQuery rq = new RangeQuery(graph);
+ *     rq.compute(graph.getNode("ORD"), 1500, RangeQuery.UNLIMITED_HOPS);
+ *     for (int k = 0; k < rq.size(); k++)
+ *         System.out.println(rq.getNode(k) + " " + rq.getDistance(k)); */
+public class RangeQuery {
+
+    /** Hop budget that places no limit on the number of edges. */
+    public static final int UNLIMITED_HOPS = Integer.MAX_VALUE;
+
+    // where each query takes its snapshot from; null to use the Graph that
+    //  created the origin
+    private final GraphSource source;
+
+    // the snapshot read by the last query
+    private GraphSnapshot snapshot;
+
+    // the cost of each edge in the next query
+    private Metric metric = Metric.PRIMARY;
+
+    // per node index, valid only if stamp[i] == epoch: the lowest tentative
+    //  distance pushed and the hops of that push, and the fewest hops of a
+    //  path to the node that was already settled (UNLIMITED_HOPS if none)
+    private int[] stamp = new int[0];
+    private int epoch;
+    private double[] tentative = new double[0];
+    private int[] tentativeHops = new int[0];
+    private int[] settledHops = new int[0];
+
+    // binary min-heap of (distance, node, hops) labels; a node may have
+    //  several labels, those that are no longer useful are skipped
+    private double[] heapKey = new double[16];
+    private int[] heapNode = new int[16];
+    private int[] heapHops = new int[16];
+    private int heapSize;
+
+    // the answer: node indices with their distance and hops, by distance
+    private int[] resultNode = new int[16];
+    private double[] resultDistance = new double[16];
+    private int[] resultHops = new int[16];
+    private int resultSize;
+
+    /** Constructor: create a RangeQuery that searches the current contents
+     * of the Graph each origin belongs to. */
+    public RangeQuery() {
+        this(null);
+    }
+
+    /** Constructor: create a RangeQuery on source, which may be a Graph, a
+     * VersionedGraph or a fixed GraphSnapshot. Each query reads one
+     * snapshot of it. */
+    public RangeQuery(GraphSource source) {
+        this.source = source;
+    }
+
+    /** Select the metric used as edge cost by subsequent queries. */
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
+    /** Return the snapshot read by the last query. */
+    public GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Find every node whose shortest path from origin, among the paths
+     * with at most maxHops edges, is no longer than maxDistance, and return
+     * how many there are (origin included). Pass Double.POSITIVE_INFINITY or
+     * UNLIMITED_HOPS to leave one of the budgets open. Throws
+     * IllegalArgumentException if a budget is negative or origin is not in
+     * the graph searched.
+     * Precondition: edge weights under the metric are non-negative. */
+    public int compute(Node origin, double maxDistance, int maxHops) {
+        if (maxDistance < 0 || maxHops < 0) {
+            throw new IllegalArgumentException("Budgets must not be negative");
+        }
+        GraphSnapshot snap = snapshotFor(origin);
+        if (!snap.contains(origin)) {
+            throw new IllegalArgumentException(origin + " is not in the graph");
+        }
+        snapshot = snap;
+        reset(snap.nodeCount());
+
+        // labels are compared on hops only under a hop budget; without one
+        // every label counts as 0 hops, so each node is settled once, as in
+        // plain Dijkstra
+        boolean countHops = maxHops != UNLIMITED_HOPS;
+        if (countHops && snap.getPrunedMetric() != null) {
+            throw new IllegalArgumentException("Hop budgets need every edge;"
+                    + " use a snapshot that was not pruned");
+        }
+        snap.checkMetric(metric);
+        int o = origin.getIndex();
+        push(o, 0.0, 0);
+        tentative[o] = 0.0;
+        tentativeHops[o] = 0;
+        while (heapSize > 0) {
+            double d = heapKey[0];
+            int v = heapNode[0];
+            int h = heapHops[0];
+            pop();
+            int key = countHops ? h : 0;
+            if (key >= settledHops[v]) {
+                // a path as short with no more hops was already settled
+                continue;
+            }
+            if (settledHops[v] == UNLIMITED_HOPS) {
+                addResult(v, d, h);
+            }
+            settledHops[v] = key;
+            if (h == maxHops) {
+                continue;
+            }
+            int next = countHops ? h + 1 : 0;
+            int end = snap.endEdge(v);
+            for (int k = snap.firstEdge(v); k < end; k++) {
+                int w = snap.target(v, k);
+                double dw = d + snap.weight(v, k, metric);
+                if (dw > maxDistance) {
+                    continue;
+                }
+                visit(w);
+                if (next < settledHops[w] && (dw < tentative[w]
+                        || next < tentativeHops[w])) {
+                    if (dw < tentative[w]) {
+                        tentative[w] = dw;
+                        tentativeHops[w] = next;
+                    }
+                    push(w, dw, h + 1);
+                }
+            }
+        }
+        return resultSize;
+    }
+
+    /* Return the snapshot to search for a query from origin. */
+    private GraphSnapshot snapshotFor(Node origin) {
+        if (source != null) {
+            return source.snapshot();
+        }
+        Graph g = origin.getGraph();
+        if (g == null) {
+            throw new IllegalArgumentException("Node is not part of a Graph;"
+                    + " create RangeQuery with its GraphSource");
+        }
+        return g.snapshot();
+    }
+
+    /* Start a new query on n nodes: grow the per-node arrays if needed and
+     * advance the epoch, which invalidates their contents in O(1). */
+    private void reset(int n) {
+        if (stamp.length < n) {
+            int capacity = Math.max(n, stamp.length * 2);
+            stamp = new int[capacity];
+            tentative = new double[capacity];
+            tentativeHops = new int[capacity];
+            settledHops = new int[capacity];
+            epoch = 0;
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heapSize = 0;
+        resultSize = 0;
+    }
+
+    /* Initialize the state of node i for this query if it is not yet. */
+    private void visit(int i) {
+        if (stamp[i] != epoch) {
+            stamp[i] = epoch;
+            tentative[i] = Double.POSITIVE_INFINITY;
+            tentativeHops[i] = UNLIMITED_HOPS;
+            settledHops[i] = UNLIMITED_HOPS;
+        }
+    }
+
+    /* Append node i, settled at distance d with h hops, to the answer. */
+    private void addResult(int i, double d, int h) {
+        if (resultSize == resultNode.length) {
+            int capacity = resultSize * 2;
+            resultNode = Arrays.copyOf(resultNode, capacity);
+            resultDistance = Arrays.copyOf(resultDistance, capacity);
+            resultHops = Arrays.copyOf(resultHops, capacity);
+        }
+        resultNode[resultSize] = i;
+        resultDistance[resultSize] = d;
+        resultHops[resultSize] = h;
+        resultSize++;
+    }
+
+    /* Add the label (d, i, h) to the heap. */
+    private void push(int i, double d, int h) {
+        visit(i);
+        if (heapSize == heapKey.length) {
+            int capacity = heapSize * 2;
+            heapKey = Arrays.copyOf(heapKey, capacity);
+            heapNode = Arrays.copyOf(heapNode, capacity);
+            heapHops = Arrays.copyOf(heapHops, capacity);
+        }
+        int k = heapSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (heapKey[parent] <= d) {
+                break;
+            }
+            move(parent, k);
+            k = parent;
+        }
+        heapKey[k] = d;
+        heapNode[k] = i;
+        heapHops[k] = h;
+    }
+
+    /* Remove the label with the smallest distance from the heap. */
+    private void pop() {
+        heapSize--;
+        double d = heapKey[heapSize];
+        int i = heapNode[heapSize];
+        int h = heapHops[heapSize];
+        int k = 0;
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (d <= heapKey[child]) {
+                break;
+            }
+            move(child, k);
+            k = child;
+        }
+        heapKey[k] = d;
+        heapNode[k] = i;
+        heapHops[k] = h;
+    }
+
+    /* Copy the heap label at position from to position to. */
+    private void move(int from, int to) {
+        heapKey[to] = heapKey[from];
+        heapNode[to] = heapNode[from];
+        heapHops[to] = heapHops[from];
+    }
+
+    /** Return the number of nodes found by the last query. */
+    public int size() {
+        return resultSize;
+    }
+
+    /** Return the k-th nearest node found by the last query.
+     * Precondition: 0 <= k < size(). */
+    public Node getNode(int k) {
+        return snapshot.nodeAt(getIndex(k));
+    }
+
+    /** Return the snapshot index of the k-th nearest node found by the last
+     * query. Precondition: 0 <= k < size(). */
+    public int getIndex(int k) {
+        checkIndex(k);
+        return resultNode[k];
+    }
+
+    /** Return the distance of the k-th nearest node found by the last query.
+     * Precondition: 0 <= k < size(). */
+    public double getDistance(int k) {
+        checkIndex(k);
+        return resultDistance[k];
+    }
+
+    /** Return the number of edges on the shortest path (within the hop
+     * budget) found to the k-th nearest node.
+     * Precondition: 0 <= k < size(). */
+    public int getHops(int k) {
+        checkIndex(k);
+        return resultHops[k];
+    }
+
+    /** Return the distance from the origin of the last query to the node
+     * with the given index, or infinity if it was not found. Only valid if
+     * the query had no hop budget. */
+    double distanceTo(int index) {
+        if (stamp[index] != epoch || settledHops[index] == UNLIMITED_HOPS) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return tentative[index];
+    }
+
+    /* Throw IndexOutOfBoundsException unless 0 <= k < size(). */
+    private void checkIndex(int k) {
+        if (k < 0 || k >= resultSize) {
+            throw new IndexOutOfBoundsException("Index " + k + ", size "
+                    + resultSize);
+        }
+    }
+}
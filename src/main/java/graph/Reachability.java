@@ -0,0 +1,212 @@
+package graph;
+
+import java.util.Arrays;
+
+/** The strongly connected components (SCCs) of a graph, the condensation DAG
+ * between them, and a reachability label for every component. Components are
+ * found with an iterative version of Tarjan's algorithm, so deep graphs do not
+ * overflow the call stack. Tarjan's algorithm numbers components in reverse
+ * topological order, so every DAG edge leads to a component with a smaller
+ * number, and each component's label is a bitset over component numbers
+ * built from the labels of its successors. Whether one node can reach another
+ * is then answered in O(1) by testing one bit. The labels take
+ * (components^2)/8 bytes, which is small for airport-sized graphs.
+ * Obtain an instance through Graph.getReachability() or
+ * GraphSnapshot.getReachability(). */
+public class Reachability {
+
+    // component[i] is the component of the node with index i
+    private final int[] component;
+
+    // number of nodes in each component
+    private final int[] componentSize;
+
+    // condensation DAG: the successors of component c are
+    //  dagTargets[dagOffsets[c]] .. dagTargets[dagOffsets[c + 1] - 1]
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+
+    // bit d of row c (words c * words .. (c + 1) * words - 1) is set if
+    //  component c can reach component d
+    private final long[] labels;
+    private final int words;
+
+    /** Constructor: compute the components of the snapshot g. */
+    Reachability(GraphSnapshot g) {
+        int n = g.nodeCount();
+        component = new int[n];
+        int count = tarjan(g);
+
+        componentSize = new int[count];
+        for (int i = 0; i < n; i++) {
+            componentSize[component[i]]++;
+        }
+
+        // build the condensation DAG, dropping duplicate edges between the
+        // same pair of components with a per-component marker
+        int[] degree = new int[count + 1];
+        int[] lastSeen = new int[count];
+        Arrays.fill(lastSeen, -1);
+        int[][] members = membersByComponent(n, count);
+        for (int c = 0; c < count; c++) {
+            for (int v : members[c]) {
+                for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                    int d = component[g.target(v, e)];
+                    if (d != c && lastSeen[d] != c) {
+                        lastSeen[d] = c;
+                        degree[c]++;
+                    }
+                }
+            }
+        }
+        dagOffsets = new int[count + 1];
+        for (int c = 0; c < count; c++) {
+            dagOffsets[c + 1] = dagOffsets[c] + degree[c];
+        }
+        dagTargets = new int[dagOffsets[count]];
+        Arrays.fill(lastSeen, -1);
+        for (int c = 0; c < count; c++) {
+            int next = dagOffsets[c];
+            for (int v : members[c]) {
+                for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                    int d = component[g.target(v, e)];
+                    if (d != c && lastSeen[d] != c) {
+                        lastSeen[d] = c;
+                        dagTargets[next++] = d;
+                    }
+                }
+            }
+        }
+
+        // successors always have smaller numbers, so their labels are done
+        words = (count + 63) >>> 6;
+        labels = new long[count * words];
+        for (int c = 0; c < count; c++) {
+            int row = c * words;
+            labels[row + (c >>> 6)] |= 1L << c;
+            for (int k = dagOffsets[c]; k < dagOffsets[c + 1]; k++) {
+                int succ = dagTargets[k] * words;
+                for (int w = 0; w < words; w++) {
+                    labels[row + w] |= labels[succ + w];
+                }
+            }
+        }
+    }
+
+    /* Fill in component using an iterative Tarjan's algorithm and return the
+     * number of components found. */
+    private int tarjan(GraphSnapshot g) {
+        int n = g.nodeCount();
+        int[] order = new int[n]; // discovery order + 1, 0 if unvisited
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n]; // Tarjan's stack of visited nodes
+        int top = 0;
+        int[] callNode = new int[n]; // explicit DFS call stack: node and the
+        int[] callEdge = new int[n]; //  position of its next edge to explore
+        int counter = 0;
+        int count = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (order[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = g.firstEdge(root);
+            order[root] = low[root] = ++counter;
+            stack[top++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+                if (callEdge[depth] < g.endEdge(v)) {
+                    int w = g.target(v, callEdge[depth]++);
+                    if (order[w] == 0) {
+                        // descend into w
+                        order[w] = low[w] = ++counter;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = g.firstEdge(w);
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], order[w]);
+                    }
+                } else {
+                    // all edges of v explored: pop a component if v is a root
+                    if (low[v] == order[v]) {
+                        int w;
+                        do {
+                            w = stack[--top];
+                            onStack[w] = false;
+                            component[w] = count;
+                        } while (w != v);
+                        count++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = callNode[depth];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /* Return, for each component, the indices of its nodes. */
+    private int[][] membersByComponent(int n, int count) {
+        int[][] members = new int[count][];
+        int[] filled = new int[count];
+        for (int c = 0; c < count; c++) {
+            members[c] = new int[componentSize[c]];
+        }
+        for (int i = 0; i < n; i++) {
+            int c = component[i];
+            members[c][filled[c]++] = i;
+        }
+        return members;
+    }
+
+    /** Return the number of strongly connected components. */
+    public int componentCount() {
+        return componentSize.length;
+    }
+
+    /** Return the component of n. Components are numbered from 0 in reverse
+     * topological order of the condensation DAG.
+     * Precondition: n is a node of the graph this index was built from. */
+    public int getComponent(Node n) {
+        return component[n.getIndex()];
+    }
+
+    /** Return the number of nodes in component c. */
+    public int componentSize(int c) {
+        return componentSize[c];
+    }
+
+    /** Return the components that component c has an edge into, i.e. its
+     * successors in the condensation DAG. */
+    public int[] successors(int c) {
+        return Arrays.copyOfRange(dagTargets, dagOffsets[c], dagOffsets[c + 1]);
+    }
+
+    /** Return true if some path leads from component c to component d. */
+    public boolean canReach(int c, int d) {
+        return (labels[c * words + (d >>> 6)] & (1L << d)) != 0;
+    }
+
+    /** Return true if some path leads from the node with index u to the
+     * node with index v. */
+    boolean canReachIndex(int u, int v) {
+        return canReach(component[u], component[v]);
+    }
+
+    /** Return true if some path leads from orig to dest. A node can always
+     * reach itself. Precondition: both are nodes of the graph this index was
+     * built from. */
+    public boolean canReach(Node orig, Node dest) {
+        return canReach(component[orig.getIndex()], component[dest.getIndex()]);
+    }
+}
@@ -0,0 +1,177 @@
+package graph;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Measures how node reordering (see NodeOrder) affects single-source
+ * queries. For the original graph and each order it prints the mean index
+ * distance between the ends of an edge, the cache misses of a simulated
+ * 32 KB direct-mapped cache over the distance array during a query, and the
+ * median time of a full Dijkstra run from random origins. The origins are
+ * the same airports for every order. The edge span and simulated misses
+ * are deterministic; the times depend on the machine and can vary between
+ * runs by more than the orders differ, so compare them over several runs.
+ * Hardware counters can be compared by running it under e.g.
+ * perf stat -e cache-misses.
+ * Usage:
+ *     ReorderBenchmark db1b coupons.csv [queries]
+ *     ReorderBenchmark random 800 [queries]
+ * where "random" generates a hub-and-spoke graph of the given number of
+ * airports, about the size of a DB1B quarter. */
+public class ReorderBenchmark {
+
+    // lines of the simulated cache, and doubles per 64-byte line
+    private static final int CACHE_LINES = 512;
+    private static final int LINE_SHIFT = 3;
+
+    private static final int ROUNDS = 7;
+
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length < 2) {
+            System.out.println("Usage: ReorderBenchmark fileType fileName"
+                    + " [queries]");
+            return;
+        }
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        Graph graph;
+        if (args[0].equals("random")) {
+            graph = randomAirlineGraph(Integer.parseInt(args[1]), 17);
+        } else {
+            graph = ShortestPaths.parseGraph(args[0], args[1]);
+        }
+        graph.report();
+
+        Random random = new Random(42);
+        String[] origins = new String[queries];
+        for (int q = 0; q < queries; q++) {
+            int i = random.nextInt(graph.nodeCount());
+            origins[q] = graph.nodeAt(i).getId();
+        }
+
+        System.out.println(String.format("%-11s %10s %14s %12s",
+                "order", "edge span", "misses/query", "ms/query"));
+        measure("original", graph, origins);
+        for (NodeOrder order : NodeOrder.values()) {
+            measure(order.toString(), graph.reordered(order), origins);
+        }
+    }
+
+    /* Print the statistics of g for queries from the given origins. */
+    private static void measure(String name, Graph g, String[] origins) {
+        GraphSnapshot snap = g.snapshot();
+        ShortestPaths sp = new ShortestPaths(snap);
+
+        long misses = 0;
+        for (String id : origins) {
+            sp.compute(snap.getNode(id));
+            misses += simulatedMisses(snap, sp);
+        }
+
+        double[] times = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (String id : origins) {
+                sp.compute(snap.getNode(id));
+            }
+            times[r] = (System.nanoTime() - start) / 1e6 / origins.length;
+        }
+        Arrays.sort(times);
+
+        System.out.println(String.format("%-11s %10.1f %14.1f %12.4f", name,
+                edgeSpan(snap), (double) misses / origins.length,
+                times[ROUNDS / 2]));
+    }
+
+    /* Return the mean of |u - v| over the edges u -> v of snap. */
+    private static double edgeSpan(GraphSnapshot snap) {
+        long total = 0;
+        for (int u = 0; u < snap.nodeCount(); u++) {
+            for (int e = snap.firstEdge(u); e < snap.endEdge(u); e++) {
+                total += Math.abs(u - snap.target(u, e));
+            }
+        }
+        return snap.edgeCount() == 0 ? 0 : (double) total / snap.edgeCount();
+    }
+
+    /* Replay the distance array reads of the last computation of sp, in the
+     * order Dijkstra's algorithm makes them, through a direct-mapped cache
+     * that starts empty, and return the number of misses. */
+    private static long simulatedMisses(GraphSnapshot snap, ShortestPaths sp) {
+        long[] cache = new long[CACHE_LINES];
+        Arrays.fill(cache, -1);
+        long misses = 0;
+        for (Node n : sp.settledNodes()) {
+            int f = n.getIndex();
+            misses += touch(cache, f);
+            for (int e = snap.firstEdge(f); e < snap.endEdge(f); e++) {
+                misses += touch(cache, snap.target(f, e));
+            }
+        }
+        return misses;
+    }
+
+    /* Read the distance of node i through cache; return 1 on a miss. */
+    private static int touch(long[] cache, int i) {
+        long line = i >>> LINE_SHIFT;
+        int slot = (int) (line % CACHE_LINES);
+        if (cache[slot] == line) {
+            return 0;
+        }
+        cache[slot] = line;
+        return 1;
+    }
+
+    /** Return a random airline-like graph with the given number of airports:
+     * a few hubs connected to each other, every other airport connected both
+     * ways to two or three hubs and to some nearby airports, with integral
+     * distances. Airports are created in random order, as in a parsed file. */
+    static Graph randomAirlineGraph(int airports, long seed) {
+        Random random = new Random(seed);
+        Graph g = new Graph();
+        int[] ids = new int[airports];
+        for (int i = 0; i < airports; i++) {
+            ids[i] = i;
+        }
+        for (int i = airports - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+        for (int id : ids) {
+            g.getNode("A" + id);
+        }
+
+        int hubs = Math.max(1, airports / 25);
+        for (int a = 0; a < airports; a++) {
+            Node from = g.getNode("A" + a);
+            if (a < hubs) {
+                for (int h = 0; h < hubs; h++) {
+                    if (h != a) {
+                        link(g, from, g.getNode("A" + h), random);
+                    }
+                }
+                continue;
+            }
+            int links = 2 + random.nextInt(2);
+            for (int k = 0; k < links; k++) {
+                link(g, from, g.getNode("A" + random.nextInt(hubs)), random);
+            }
+            for (int k = 0; k < 3; k++) {
+                int near = a + 1 + random.nextInt(8);
+                if (near < airports) {
+                    link(g, from, g.getNode("A" + near), random);
+                }
+            }
+        }
+        return g;
+    }
+
+    /* Add edges both ways between a and b with the same random distance. */
+    private static void link(Graph g, Node a, Node b, Random random) {
+        double miles = 100 + random.nextInt(2400);
+        g.addEdge(a, b, miles);
+        g.addEdge(b, a, miles);
+    }
+}
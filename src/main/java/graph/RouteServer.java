@@ -0,0 +1,513 @@
+package graph;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves shortest-path queries over HTTP from a graph that is parsed once at
+ * startup, using only the JDK's built-in com.sun.net.httpserver. All
+ * responses are JSON. Endpoints:
+ *   GET  /path?from=ORD&to=LAX         shortest path and its length
+ *   GET  /distances?from=ORD           length of the shortest path to every
+ *                                      reachable node
+ *   POST /path       [{"from":"ORD","to":"LAX"}, ...]   batch of paths
+ *   POST /distances  ["ORD", "JFK", ...]                batch of distances
+ *   GET  /stats                        request count and p50/p99 latency
+ * Every query endpoint accepts an optional metric=NAME parameter selecting a
+ * weight column of the graph. Each request reads one snapshot of the graph,
+ * so serving a VersionedGraph lets it be updated without a restart.
+ * Requests run on virtual threads when the JDK provides them (21+), and on
+ * a cached thread pool otherwise. Identical queries that arrive while one
+ * is being computed share its result.
+ * Sample usage:
+ *   RouteServer db1b coupons.csv 8080
+ */
+public class RouteServer {
+
+    // number of most recent requests kept for the latency percentiles
+    private static final int LATENCY_WINDOW = 4096;
+
+    private static final Logger LOG =
+            Logger.getLogger(RouteServer.class.getName());
+
+    private final GraphSource source;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // queries being computed, keyed by endpoint and normalized parameters
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight;
+
+    private final LatencyWindow latencies;
+    private final AtomicLong coalesced;
+
+    /**
+     * Constructor: create a server answering queries on source at the given
+     * port. A plain Graph must not be modified while the server runs; use a
+     * VersionedGraph for live updates. Call start() to begin serving.
+     */
+    public RouteServer(GraphSource source, int port) throws IOException {
+        this.source = source;
+        inFlight = new ConcurrentHashMap<>();
+        latencies = new LatencyWindow(LATENCY_WINDOW);
+        coalesced = new AtomicLong();
+
+        // build the lazy snapshot and index now so request threads only ever
+        // read them
+        source.snapshot().getReachability();
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/path", this::handlePath);
+        server.createContext("/distances", this::handleDistances);
+        server.createContext("/stats", this::handleStats);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+    }
+
+    /** Start serving requests in the background. */
+    public void start() {
+        server.start();
+    }
+
+    /** Stop the server, waiting up to delay seconds for open requests. */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    /** Return the port the server listens on. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /* Return an executor that runs each request on a new virtual thread, or
+     * a cached thread pool on JDKs without virtual threads. */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory =
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /* GET /path answers a single query, POST /path a batch. */
+    private void handlePath(HttpExchange ex) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        String body;
+        try {
+            HashMap<String, String> params = queryParams(ex);
+            GraphSnapshot snap = source.snapshot();
+            Metric metric = metricParam(snap, params);
+            if ("GET".equals(ex.getRequestMethod())) {
+                Node from = nodeParam(snap, params, "from");
+                Node to = nodeParam(snap, params, "to");
+                body = coalesce(snap.getVersion() + " path " + from + " " + to
+                        + " " + metric, () -> pathJson(snap, from, to, metric));
+            } else if ("POST".equals(ex.getRequestMethod())) {
+                body = batchPaths(snap, readBody(ex), metric);
+            } else {
+                throw new BadRequest(405, "Use GET or POST");
+            }
+            status = 200;
+        } catch (BadRequest e) {
+            status = e.status;
+            body = errorJson(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = internalError(ex, e);
+        }
+        latencies.record(System.nanoTime() - start);
+        respond(ex, status, body);
+    }
+
+    /* GET /distances answers a single origin, POST /distances a batch. */
+    private void handleDistances(HttpExchange ex) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        String body;
+        try {
+            HashMap<String, String> params = queryParams(ex);
+            GraphSnapshot snap = source.snapshot();
+            Metric metric = metricParam(snap, params);
+            if ("GET".equals(ex.getRequestMethod())) {
+                Node from = nodeParam(snap, params, "from");
+                body = coalesce(snap.getVersion() + " distances " + from + " "
+                        + metric, () -> distancesJson(snap, from, metric));
+            } else if ("POST".equals(ex.getRequestMethod())) {
+                StringBuilder sb = new StringBuilder("[");
+                Matcher m = STRING.matcher(readBody(ex));
+                while (m.find()) {
+                    Node from = node(snap, m.group(1));
+                    if (sb.length() > 1) {
+                        sb.append(',');
+                    }
+                    sb.append(coalesce(snap.getVersion() + " distances " + from
+                            + " " + metric,
+                            () -> distancesJson(snap, from, metric)));
+                }
+                body = sb.append(']').toString();
+            } else {
+                throw new BadRequest(405, "Use GET or POST");
+            }
+            status = 200;
+        } catch (BadRequest e) {
+            status = e.status;
+            body = errorJson(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = internalError(ex, e);
+        }
+        latencies.record(System.nanoTime() - start);
+        respond(ex, status, body);
+    }
+
+    /* GET /stats reports the latency of recent requests. */
+    private void handleStats(HttpExchange ex) throws IOException {
+        long[] sorted = latencies.sortedSnapshot();
+        String body = "{\"requests\":" + latencies.count()
+                + ",\"coalesced\":" + coalesced.get()
+                + ",\"p50Millis\":" + millis(percentile(sorted, 0.50))
+                + ",\"p99Millis\":" + millis(percentile(sorted, 0.99)) + "}";
+        respond(ex, 200, body);
+    }
+
+    /* Run work, unless an identical query is already running, in which case
+     * wait for and return its result instead. */
+    private String coalesce(String key, Supplier<String> work) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        try {
+            String result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // a quoted JSON string, and a "from"/"to" member of a JSON object
+    private static final Pattern STRING = Pattern.compile("\"([^\"]*)\"");
+    private static final Pattern OBJECT = Pattern.compile("\\{([^}]*)\\}");
+    private static final Pattern MEMBER =
+            Pattern.compile("\"(from|to)\"\\s*:\\s*\"([^\"]*)\"");
+
+    /* Answer a JSON array of {"from":..,"to":..} objects, computing each
+     * distinct origin only once. */
+    private String batchPaths(GraphSnapshot snap, String body,
+            Metric metric) {
+        ArrayList<Node[]> pairs = new ArrayList<>();
+        Matcher obj = OBJECT.matcher(body);
+        while (obj.find()) {
+            Node[] pair = new Node[2];
+            Matcher member = MEMBER.matcher(obj.group(1));
+            while (member.find()) {
+                pair["from".equals(member.group(1)) ? 0 : 1] =
+                        node(snap, member.group(2));
+            }
+            if (pair[0] == null || pair[1] == null) {
+                throw new BadRequest(400, "Each query needs from and to");
+            }
+            pairs.add(pair);
+        }
+
+        String[] answers = new String[pairs.size()];
+        boolean[] done = new boolean[pairs.size()];
+        ShortestPaths sp = new ShortestPaths(snap);
+        sp.setMetric(metric);
+        for (int i = 0; i < pairs.size(); i++) {
+            if (done[i]) {
+                continue;
+            }
+            Node from = pairs.get(i)[0];
+            sp.compute(from);
+            for (int j = i; j < pairs.size(); j++) {
+                if (!done[j] && pairs.get(j)[0].equals(from)) {
+                    answers[j] = pathJson(sp, from, pairs.get(j)[1]);
+                    done[j] = true;
+                }
+            }
+        }
+        return "[" + String.join(",", Arrays.asList(answers)) + "]";
+    }
+
+    /* Compute and describe the shortest path from origin to dest. */
+    private static String pathJson(GraphSnapshot snap, Node origin,
+            Node dest, Metric metric) {
+        ShortestPaths sp = new ShortestPaths(snap);
+        sp.setMetric(metric);
+        sp.compute(origin, dest);
+        return pathJson(sp, origin, dest);
+    }
+
+    /* Describe the path to dest found by sp, which was computed from
+     * origin. */
+    private static String pathJson(ShortestPaths sp, Node origin, Node dest) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"from\":").append(quote(origin.getId()))
+          .append(",\"to\":").append(quote(dest.getId()));
+        LinkedList<Node> path = sp.shortestPath(dest);
+        if (path == null) {
+            return sb.append(",\"distance\":null,\"path\":null}").toString();
+        }
+        sb.append(",\"distance\":").append(sp.shortestPathLength(dest))
+          .append(",\"path\":[");
+        boolean first = true;
+        for (Node n : path) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(quote(n.getId()));
+            first = false;
+        }
+        return sb.append("]}").toString();
+    }
+
+    /* Compute and describe the distances from origin to all nodes it can
+     * reach. */
+    private static String distancesJson(GraphSnapshot snap, Node origin,
+            Metric metric) {
+        ShortestPaths sp = new ShortestPaths(snap);
+        sp.setMetric(metric);
+        sp.compute(origin);
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"from\":").append(quote(origin.getId()))
+          .append(",\"distances\":{");
+        boolean first = true;
+        for (Node n : sp.settledNodes()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(quote(n.getId())).append(':')
+              .append(sp.shortestPathLength(n));
+            first = false;
+        }
+        return sb.append("}}").toString();
+    }
+
+    /* Return the node of snap with the given id. */
+    private static Node node(GraphSnapshot snap, String id) {
+        Node n = snap.getNode(id);
+        if (n == null) {
+            throw new BadRequest(404, "Unknown node " + id);
+        }
+        return n;
+    }
+
+    /* Return the node named by a required query parameter. */
+    private static Node nodeParam(GraphSnapshot snap,
+            HashMap<String, String> params, String name) {
+        String id = params.get(name);
+        if (id == null) {
+            throw new BadRequest(400, "Missing parameter " + name);
+        }
+        return node(snap, id);
+    }
+
+    /* Return the metric named by the optional metric parameter. */
+    private static Metric metricParam(GraphSnapshot snap,
+            HashMap<String, String> params) {
+        String name = params.get("metric");
+        if (name == null) {
+            return Metric.PRIMARY;
+        }
+        try {
+            return snap.metric(name);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(400, e.getMessage());
+        }
+    }
+
+    /* Decode the query string of the request URI. */
+    private static HashMap<String, String> queryParams(HttpExchange ex)
+            throws UnsupportedEncodingException {
+        HashMap<String, String> params = new HashMap<>();
+        String query = ex.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    /* Read the whole request body. */
+    private static String readBody(HttpExchange ex) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = ex.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /* Send a JSON response and close the exchange. */
+    private static void respond(HttpExchange ex, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String errorJson(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    /* Log e, which a request to ex failed with unexpectedly, and return a
+     * response body that does not reveal it to the client. */
+    private static String internalError(HttpExchange ex, RuntimeException e) {
+        LOG.log(Level.SEVERE, "Failed to answer " + ex.getRequestURI(), e);
+        return errorJson("internal error");
+    }
+
+    /* Return s as a JSON string literal. */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /* Return the value at fraction p of a sorted array, or 0 if empty. */
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** Exception carrying the HTTP status for a request that cannot be
+     * answered. */
+    static class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Fixed-size ring buffer of the most recent request latencies, from which
+     * percentiles are taken.
+     */
+    static class LatencyWindow {
+        private final long[] samples;
+        private long count; // total number of samples ever recorded
+
+        /** constructor: keep the given number of most recent samples */
+        LatencyWindow(int size) {
+            samples = new long[size];
+        }
+
+        /** record one latency in nanoseconds */
+        synchronized void record(long nanos) {
+            samples[(int) (count % samples.length)] = nanos;
+            count++;
+        }
+
+        /** return the total number of recorded samples */
+        synchronized long count() {
+            return count;
+        }
+
+        /** return the samples in the window in increasing order */
+        synchronized long[] sortedSnapshot() {
+            long[] copy = Arrays.copyOf(samples,
+                    (int) Math.min(count, samples.length));
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Parse the graph once and serve queries until the process is killed.
+     * Arguments: fileType fileName [port] [metric ...]
+     * The optional metric names choose the DB1B columns loaded as weights.
+     */
+    public static void main(String[] args) throws IOException {
+        String fileType = args[0];
+        String fileName = args[1];
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 8080;
+        String[] metrics = args.length > 3
+                ? Arrays.copyOfRange(args, 3, args.length)
+                : new String[] {"distance"};
+
+        Graph graph;
+        try {
+            graph = ShortestPaths.parseGraph(fileType, fileName, metrics);
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not open file " + fileName);
+            return;
+        }
+        graph.report();
+
+        RouteServer server = new RouteServer(graph, port);
+        server.start();
+        System.out.println("Serving routes on port " + server.getPort());
+    }
+}
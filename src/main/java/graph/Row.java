@@ -0,0 +1,119 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/** One line of a delimited input file, as seen by a RowFilter. Fields are
+ * located lazily: reading column c only scans the line up to the end of c,
+ * and only the fields actually read are decoded, so filters can reject a
+ * row after looking at one or two raw fields. Surrounding double quotes are
+ * not part of a field's value. A parser reuses one Row for every line. */
+public final class Row {
+
+    // maps lower-case column names to column positions
+    private final Map<String,Integer> columns;
+    private final char separator;
+
+    private String line;
+
+    // starts[i] is the position in line where field i begins, known for
+    //  i < located
+    private int[] starts = new int[16];
+    private int located;
+
+    /** Constructor: create a row for a file with the given columns, whose
+     * fields are separated by separator. */
+    Row(Map<String,Integer> columns, char separator) {
+        this.columns = columns;
+        this.separator = separator;
+    }
+
+    /** Make this row represent the given line. */
+    void reset(String line) {
+        this.line = line;
+        located = 0;
+    }
+
+    /** Return the position of the column with the given name (ignoring
+     * case). Throws IllegalArgumentException if there is none. */
+    public int column(String name) {
+        Integer c = columns.get(name.toLowerCase());
+        if (c == null) {
+            throw new IllegalArgumentException("No column named " + name);
+        }
+        return c;
+    }
+
+    /** Return the value of field c. */
+    public String text(int c) {
+        int from = start(c);
+        return line.substring(from, end(c, from));
+    }
+
+    /** Return the value of the named field. */
+    public String text(String name) {
+        return text(column(name));
+    }
+
+    /** Return the value of field c as a number. Throws
+     * NumberFormatException if it is not one. */
+    public double number(int c) {
+        return Double.parseDouble(text(c));
+    }
+
+    /** Return the value of the named field as a number. */
+    public double number(String name) {
+        return number(column(name));
+    }
+
+    /** Return true if the value of field c is value, without copying the
+     * field. */
+    public boolean is(int c, String value) {
+        int from = start(c);
+        int to = end(c, from);
+        return to - from == value.length()
+                && line.regionMatches(from, value, 0, value.length());
+    }
+
+    /** Return true if the value of the named field is value. */
+    public boolean is(String name, String value) {
+        return is(column(name), value);
+    }
+
+    /* Return the position of the first character of the value of field c,
+     * locating the fields before it if needed. Throws
+     * IllegalArgumentException if the line has fewer fields. */
+    private int start(int c) {
+        while (located <= c) {
+            int at = 0;
+            if (located > 0) {
+                at = line.indexOf(separator, starts[located - 1]);
+                if (at < 0) {
+                    throw new IllegalArgumentException("No field " + c
+                            + " in line: " + line);
+                }
+                at++;
+            }
+            if (located == starts.length) {
+                starts = Arrays.copyOf(starts, located * 2);
+            }
+            starts[located++] = at;
+        }
+        int from = starts[c];
+        return from < line.length() && line.charAt(from) == '"'
+                ? from + 1 : from;
+    }
+
+    /* Return the position just after the value of field c, whose value
+     * starts at from. */
+    private int end(int c, int from) {
+        int to = line.indexOf(separator, from);
+        if (to < 0) {
+            to = line.length();
+        }
+        if (to > from && line.charAt(to - 1) == '"' && from > starts[c]) {
+            to--;
+        }
+        return to;
+    }
+}
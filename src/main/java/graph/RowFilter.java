@@ -0,0 +1,97 @@
+package graph;
+
+/** A condition on the rows of an input file, checked by a GraphParser
+ * before it decodes the edge on the row, so that rejected rows cost no more
+ * than the fields the condition looks at. Conditions name columns by their
+ * header (case-insensitive); the basic format has the columns origin, dest
+ * and distance. Example usage:
+ *     parser.setFilter(RowFilter.all(
+ *             RowFilter.oneOf("carrier", "AA", "UA"),
+ *             RowFilter.between("distance", 500, 1500)));  */
+public interface RowFilter {
+
+    /** Return true if the edge on row should be parsed. */
+    boolean accept(Row row);
+
+    /** Return a filter equivalent to this one for the rows of a file with
+     * the same columns as row, with every column name already resolved to
+     * its position. A GraphParser binds its filter once before it reads the
+     * first row. Throws IllegalArgumentException if a named column does not
+     * exist. */
+    default RowFilter bind(Row row) {
+        return this;
+    }
+
+    /** Return a filter that accepts rows whose column has one of the given
+     * values. */
+    static RowFilter oneOf(String column, String... values) {
+        String[] copy = values.clone();
+        return new RowFilter() {
+            @Override
+            public boolean accept(Row row) {
+                return bind(row).accept(row);
+            }
+
+            @Override
+            public RowFilter bind(Row header) {
+                int c = header.column(column);
+                return row -> {
+                    for (String value : copy) {
+                        if (row.is(c, value)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+        };
+    }
+
+    /** Return a filter that accepts rows whose column holds a number from
+     * min to max, inclusive. */
+    static RowFilter between(String column, double min, double max) {
+        return new RowFilter() {
+            @Override
+            public boolean accept(Row row) {
+                return bind(row).accept(row);
+            }
+
+            @Override
+            public RowFilter bind(Row header) {
+                int c = header.column(column);
+                return row -> {
+                    double value = row.number(c);
+                    return value >= min && value <= max;
+                };
+            }
+        };
+    }
+
+    /** Return a filter that accepts the rows that every one of filters
+     * accepts, checking them in the given order. */
+    static RowFilter all(RowFilter... filters) {
+        RowFilter[] copy = filters.clone();
+        return new RowFilter() {
+            @Override
+            public boolean accept(Row row) {
+                return bind(row).accept(row);
+            }
+
+            @Override
+            public RowFilter bind(Row header) {
+                RowFilter[] bound = new RowFilter[copy.length];
+                for (int f = 0; f < copy.length; f++) {
+                    bound[f] = copy[f].bind(header);
+                }
+                return row -> {
+                    for (RowFilter f : bound) {
+                        if (!f.accept(row)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+        };
+    }
+}
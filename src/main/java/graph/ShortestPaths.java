@@ -8,14 +8,18 @@
 
 package graph;
 
-import heap.Heap;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
 
 /**
  * Provides an implementation of Dijkstra's single-source shortest paths
- * algorithm.
+ * algorithm. Each computation reads one immutable GraphSnapshot, so a graph
+ * may be updated (through a VersionedGraph) while queries run. The per-node
+ * arrays and the frontier are kept between computations, so repeated queries
+ * on the same snapshot do not allocate. The compute methods throw
+ * IllegalArgumentException if a node passed to them is not in the snapshot
+ * they search.
  * Sample usage:
  * Graph g = // create your graph
  * ShortestPaths sp = new ShortestPaths();
@@ -26,42 +30,318 @@ import java.util.*;
  * double abPathLength = sp.getShortestPathLength(b);
  */
 public class ShortestPaths {
-    // stores auxiliary data associated with each node for the shortest
-    // paths computation:
-    private HashMap<Node, PathData> paths;
+    // where each computation takes its snapshot from; null to use the Graph
+    // that created the origin
+    private final GraphSource source;
+
+    // the snapshot read by the last computation
+    private GraphSnapshot snapshot;
+
+    // auxiliary data for each node index of the snapshot, valid only if
+    // stamp[i] == epoch (otherwise the node was not reached): the distance of
+    // the shortest path found from the source, the index of the previous node
+    // on that path (-1 for none), and the index of the seed it starts from.
+    // The arrays are kept between computations and reset by advancing epoch.
+    private int[] stamp = new int[0];
+    private int epoch;
+    private double[] distance = new double[0];
+    private int[] previous = new int[0];
+    private int[] seed = new int[0];
+
+    // indices of the nodes whose distance is final, in the order they were
+    // settled (i.e. by increasing distance)
+    private int[] settled = new int[0];
+    private int settledCount;
+
+    // the frontier of the last computation and the snapshot, metric and kind
+    // it was created for; it is cleared and reused while they stay the same
+    private Frontier frontier;
+    private GraphSnapshot frontierSnapshot;
+    private Metric frontierMetric;
+    private Frontier.Kind frontierCreatedAs;
+
+    // true if the last computation followed edges backwards, i.e. paths lead
+    // from each node to a single target rather than from an origin
+    private boolean reversed;
+
+    // the cost of each edge in the next computation
+    private Metric metric = Metric.PRIMARY;
+
+    // the priority queue implementation used for the frontier
+    private Frontier.Kind frontierKind = Frontier.Kind.AUTO;
+
+    /**
+     * Constructor: create a ShortestPaths object that searches the current
+     * contents of the Graph each origin belongs to.
+     */
+    public ShortestPaths() {
+        this(null);
+    }
+
+    /**
+     * Constructor: create a ShortestPaths object for queries on source, which
+     * may be a Graph, a VersionedGraph or a fixed GraphSnapshot. Every
+     * computation takes one snapshot of it and reads only that snapshot, so
+     * concurrent updates to a VersionedGraph never affect a running query.
+     */
+    public ShortestPaths(GraphSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Select the metric used as edge cost by subsequent computations. By
+     * default the first weight column of the graph is used.
+     */
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
+    /** Return the metric used as edge cost. */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Select the priority queue used for the frontier. By default (AUTO) it
+     * is chosen from the edge weights under the current metric: Dial's
+     * buckets or a radix heap for integral weights such as whole miles, and
+     * a 4-ary heap otherwise.
+     */
+    public void setFrontierKind(Frontier.Kind kind) {
+        frontierKind = kind;
+    }
+
+    /** Return the snapshot read by the last computation. */
+    public GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
 
     /**
      * Compute the shortest path to all nodes from origin using Dijkstra's
-     * algorithm. Fill in the paths field, which associates each Node with its
-     * PathData record, storing total distance from the source, and the
-     * backpointer to the previous node on the shortest path.
+     * algorithm. Fill in the distance and previous arrays, which store for
+     * each node the total distance from the source, and the backpointer to
+     * the previous node on the shortest path.
      * Precondition: origin is a node in the Graph.
      */
     public void compute(Node origin) {
-        paths = new HashMap<Node, PathData>();
-        // TODO 1: implement Dijkstra's algorithm to fill paths with
-        // shortest-path data for each Node reachable from origin.
-        Heap<Node, Double> frontier = new Heap<>();
-        paths.put(origin, new PathData(0, null));
-        frontier.add(origin, 0.0);
-        while (frontier.size() != 0) {
-            Node f = frontier.poll();
-            for (HashMap.Entry<Node, Double> entry : f.getNeighbors().entrySet()) {
-                //neighbor's node
-                Node w = entry.getKey();
-                //weight of the edge to the neighbor's node
-                if (!paths.containsKey(w)) {
-                    paths.put(w, new PathData(paths.get(f).distance + f.getNeighbors().get(w), f));
-                    frontier.add(w, paths.get(w).distance);
-                } else if (paths.get(f).distance + f.getNeighbors().get(w) < paths.get(w).distance) {
-                    paths.get(w).distance = paths.get(f).distance + f.getNeighbors().get(w);
-                    paths.get(w).previous = f;
-                    frontier.changePriority(w, paths.get(w).distance);
+        search(Collections.singletonList(origin), false, null);
+    }
+
+    /**
+     * Compute the shortest path from origin to target. The search stops once
+     * target is settled and never enters strongly connected components that
+     * cannot reach target; if target is unreachable it returns without
+     * searching. Only the path to target is guaranteed afterwards; other
+     * nodes may be missing or hold longer distances.
+     * Precondition: origin and target are nodes in the Graph.
+     */
+    public void compute(Node origin, Node target) {
+        search(Collections.singletonList(origin), false, target);
+    }
+
+    /**
+     * Compute the shortest path from every node to target in a single pass,
+     * by running Dijkstra's algorithm over the reverse adjacency index.
+     * Afterwards shortestPathLength(n) is the distance from n to target and
+     * shortestPath(n) lists the nodes from n to target.
+     * Precondition: target is a node in the Graph.
+     */
+    public void computeToTarget(Node target) {
+        search(Collections.singletonList(target), true, null);
+    }
+
+    /**
+     * Compute, in a single pass, the shortest path to all nodes from the
+     * nearest of the given origins. Every reached node is labeled with the
+     * origin it is closest to, available through nearestSource.
+     * Precondition: origins is non-empty and contains nodes in the Graph.
+     */
+    public void computeFromSources(Collection<Node> origins) {
+        search(origins, false, null);
+    }
+
+    /* Return the snapshot to search for a computation from seeds. */
+    private GraphSnapshot snapshotFor(Collection<Node> seeds) {
+        if (source != null) {
+            return source.snapshot();
+        }
+        Graph g = seeds.iterator().next().getGraph();
+        if (g == null) {
+            throw new IllegalArgumentException("Node is not part of a Graph;"
+                    + " create ShortestPaths with its GraphSource");
+        }
+        return g.snapshot();
+    }
+
+    /* Dijkstra's algorithm seeded with every node in seeds at distance 0.
+     * If backward is true, edges are followed from destination to origin
+     * using the incoming edges. If target is not null, the search stops at
+     * target and ignores nodes that cannot reach it. */
+    private void search(Collection<Node> seeds, boolean backward,
+            Node target) {
+        GraphSnapshot snap = snapshotFor(seeds);
+        snap.checkMetric(metric);
+        for (Node s : seeds) {
+            checkNode(snap, s);
+        }
+        if (target != null) {
+            checkNode(snap, target);
+        }
+        snapshot = snap;
+        reversed = backward;
+        reset(snap.nodeCount());
+
+        int goal = -1;
+        Reachability reach = null;
+        if (target != null) {
+            goal = target.getIndex();
+            reach = snap.getReachability();
+        }
+
+        Frontier frontier = frontierFor(snap);
+        for (Node s : seeds) {
+            int i = s.getIndex();
+            visit(i);
+            if (distance[i] != 0) {
+                distance[i] = 0;
+                seed[i] = i;
+                if (reach == null || reach.canReachIndex(i, goal)) {
+                    frontier.push(i, 0.0);
+                }
+            }
+        }
+        while (!frontier.isEmpty()) {
+            int f = frontier.poll();
+            settled[settledCount++] = f;
+            if (f == goal) {
+                break;
+            }
+            if (backward) {
+                int end = snap.endInEdge(f);
+                for (int k = snap.firstInEdge(f); k < end; k++) {
+                    relax(f, snap.source(f, k), snap.inWeight(f, k, metric),
+                            frontier, reach, goal);
+                }
+            } else {
+                int end = snap.endEdge(f);
+                for (int k = snap.firstEdge(f); k < end; k++) {
+                    relax(f, snap.target(f, k), snap.weight(f, k, metric),
+                            frontier, reach, goal);
                 }
             }
         }
     }
 
+    /* Improve the distance of neighbor w of the settled node f, whose edge
+     * to w costs cost, unless reach shows that w cannot reach goal. */
+    private void relax(int f, int w, double cost, Frontier frontier,
+            Reachability reach, int goal) {
+        if (reach != null && !reach.canReachIndex(w, goal)) {
+            return;
+        }
+        visit(w);
+        //distance to the neighbor's node through f
+        double d = distance[f] + cost;
+        if (d < distance[w]) {
+            distance[w] = d;
+            previous[w] = f;
+            seed[w] = seed[f];
+            frontier.push(w, d);
+        }
+    }
+
+    /* Throw IllegalArgumentException if n is not a node of snap, e.g. it
+     * was added to its graph after snap was taken, or belongs to another
+     * graph. */
+    private static void checkNode(GraphSnapshot snap, Node n) {
+        if (!snap.contains(n)) {
+            throw new IllegalArgumentException(n + " is not in the graph");
+        }
+    }
+
+    /* Start a new computation on n nodes: grow the per-node arrays if
+     * needed and advance the epoch, which marks every node as unreached. */
+    private void reset(int n) {
+        if (stamp.length < n) {
+            stamp = new int[n];
+            distance = new double[n];
+            previous = new int[n];
+            seed = new int[n];
+            settled = new int[n];
+            epoch = 0;
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        settledCount = 0;
+    }
+
+    /* Mark node i as reached by this computation if it is not yet. */
+    private void visit(int i) {
+        if (stamp[i] != epoch) {
+            stamp[i] = epoch;
+            distance[i] = Double.POSITIVE_INFINITY;
+            previous[i] = -1;
+        }
+    }
+
+    /* Return the frontier for searching snap under the current metric and
+     * frontier kind, cleared, creating it only if one of them changed. */
+    private Frontier frontierFor(GraphSnapshot snap) {
+        if (frontier == null || frontierSnapshot != snap
+                || !frontierMetric.equals(metric)
+                || frontierCreatedAs != frontierKind) {
+            frontier = Frontier.create(frontierKind, snap, metric);
+            frontierSnapshot = snap;
+            frontierMetric = metric;
+            frontierCreatedAs = frontierKind;
+        } else {
+            frontier.clear();
+        }
+        return frontier;
+    }
+
+    /* Return the index of n in the last computation's snapshot, or -1 if
+     * it is not part of it. */
+    private int indexOf(Node n) {
+        return snapshot.contains(n) ? n.getIndex() : -1;
+    }
+
+    /* Return the distance of node index i in the last computation, or
+     * infinity if it was not reached. */
+    private double distanceAt(int i) {
+        return stamp[i] == epoch ? distance[i] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the origin closest to n in the last computation, or null if n
+     * was not reached. After computeToTarget this is the target itself.
+     * Precondition: n is a node in the graph, and one of the compute methods
+     * has been called.
+     */
+    public Node nearestSource(Node n) {
+        int i = indexOf(n);
+        if (i < 0 || distanceAt(i) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        return snapshot.nodeAt(seed[i]);
+    }
+
+    /**
+     * Returns the nodes whose shortest path was settled by the last
+     * computation, in order of increasing distance.
+     * Precondition: one of the compute methods has been called.
+     */
+    public List<Node> settledNodes() {
+        ArrayList<Node> nodes = new ArrayList<>(settledCount);
+        for (int k = 0; k < settledCount; k++) {
+            nodes.add(snapshot.nodeAt(settled[k]));
+        }
+        return nodes;
+    }
+
     /**
      * Returns the length  the shortest path from the origin to destination.
      * If no path exists, return Double.POSITIVE_INFINITY.
@@ -69,63 +349,34 @@ public class ShortestPaths {
      * has been called.
      */
     public double shortestPathLength(Node destination) {
-        // TODO 2 - implement this method to fetch the shortest path length
-        // from the paths data computed by Dijkstra's algorithm.
-        if (paths.containsKey(destination))
-            return paths.get(destination).distance;
-        else
-            return Double.POSITIVE_INFINITY;
+        int i = indexOf(destination);
+        return i < 0 ? Double.POSITIVE_INFINITY : distanceAt(i);
     }
 
     /**
      * Returns a LinkedList of the nodes along the shortest path from origin
      * to destination. This path includes the origin and destination. If origin
      * and destination are the same node, it is included only once.
-     * If no path to it exists, return null.
+     * If no path to it exists, return null. After computeToTarget the
+     * argument is the start of the path and the target is its last node.
      * Precondition: destination is a node in the graph, and compute(origin)
      * has been called.
      */
     public LinkedList<Node> shortestPath(Node destination) {
-        // TODO 3 - implement this method to reconstruct sequence of Nodes
-        // along the shortest path from the origin to destination using the
-        // paths data computed by Dijkstra's algorithm.
-        if (!paths.containsKey(destination)) {
+        int i = indexOf(destination);
+        if (i < 0 || distanceAt(i) == Double.POSITIVE_INFINITY) {
             return null;
-        } else {
-            LinkedList<Node> lst = new LinkedList<>();
-            lst.add(destination);
-            Node counter = paths.get(destination).previous;
-            while (counter != null) {
-                lst.add(counter);
-                counter = paths.get(counter).previous;
-            }
-            if (lst.size() == 1)
-                return lst;
-            else if (lst.get(0).equals(lst.getLast()))
-                lst.removeLast();
-
-            Collections.reverse(lst);
-            return lst;
         }
-    }
-
-
-
-    /**
-     * Inner class representing data used by Dijkstra's algorithm in the
-     * process of computing shortest paths from a given source node.
-     */
-    class PathData {
-        double distance; // distance of the shortest path from source
-        Node previous; // previous node in the path from the source
-
-        /**
-         * constructor: initialize distance and previous node
-         */
-        public PathData(double dist, Node prev) {
-            distance = dist;
-            previous = prev;
+        LinkedList<Node> lst = new LinkedList<>();
+        for (int v = i; v != -1; v = previous[v]) {
+            // backpointers of a reversed search already lead to the target
+            if (reversed) {
+                lst.addLast(snapshot.nodeAt(v));
+            } else {
+                lst.addFirst(snapshot.nodeAt(v));
+            }
         }
+        return lst;
     }
 
 
@@ -136,12 +387,22 @@ public class ShortestPaths {
      */
     protected static Graph parseGraph(String fileType, String fileName) throws
             FileNotFoundException {
+        return parseGraph(fileType, fileName, new String[] {"distance"});
+    }
+
+    /**
+     * Static helper method to open and parse a file containing graph
+     * information, loading the named columns as edge metrics. Basic files
+     * only have a distance column.
+     */
+    protected static Graph parseGraph(String fileType, String fileName,
+            String[] metrics) throws FileNotFoundException {
         // create an appropriate parser for the given file type
         GraphParser parser;
         if (fileType.equals("basic")) {
             parser = new BasicParser();
         } else if (fileType.equals("db1b")) {
-            parser = new DB1BParser();
+            parser = new DB1BParser(metrics);
         } else {
             throw new IllegalArgumentException(
                     "Unsupported file type: " + fileType);
@@ -180,18 +441,18 @@ public class ShortestPaths {
 
         // TODO 4: create a ShortestPaths object, use it to compute shortest
         // paths data from the origin node given by origCode.
-        ShortestPaths sh = new ShortestPaths();
+        ShortestPaths sh = new ShortestPaths(graph);
         Node origin = graph.getNode(origCode);
-        sh.compute(origin);
 
 
         // TODO 5:
         // If destCode was not given, print each reachable node followed by the
         // length of the shortest path to it from the origin.
         if (args.length == 3) {
+            sh.compute(origin);
             System.out.println("Shortest paths from " + origCode + ": ");
-            for (HashMap.Entry<Node, PathData> entry : sh.paths.entrySet()) {
-                System.out.println(entry.getKey() + ": " + entry.getValue().distance);
+            for (Node n : sh.settledNodes()) {
+                System.out.println(n + ": " + sh.shortestPathLength(n));
             }
         }
 
@@ -201,6 +462,7 @@ public class ShortestPaths {
         // If no path exists, print a message saying so.
         if (args.length == 4) {
             Node dest = graph.getNode(destCode);
+            sh.compute(origin, dest);
             if (sh.shortestPath(dest) == null) {
                 System.out.println("no path exists");
             } else {
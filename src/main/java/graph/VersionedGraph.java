@@ -0,0 +1,104 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** A graph that can be updated while it is being queried. The current
+ * contents are always an immutable GraphSnapshot. Writers collect node and
+ * edge additions in a Batch and commit it, which builds the next snapshot by
+ * copying only the segments the batch touches and publishes it atomically.
+ * Readers (e.g. a ShortestPaths created with this graph) take the current
+ * snapshot at the start of each computation and keep reading it to the end,
+ * without locks, even if newer versions are published meanwhile.
+ * The nodes of a version belong to no Graph and carry no edges of their own,
+ * since each node is shared by every version that contains it; search a
+ * version with a ShortestPaths created with this graph or the snapshot.
+ * Example usage:
+ *     VersionedGraph vg = new VersionedGraph(parser.parse());
+ *     ShortestPaths sp = new ShortestPaths(vg);
+ *     // on another thread:
+ *     vg.begin().addEdge("ORD", "ANC", 2846).commit(); */
+public class VersionedGraph implements GraphSource {
+
+    private final AtomicReference<GraphSnapshot> current;
+
+    /** Constructor: create an empty graph whose edges carry one weight for
+     * each of the given metric names. */
+    public VersionedGraph(String... metricNames) {
+        if (metricNames.length == 0) {
+            throw new IllegalArgumentException("A graph needs a metric");
+        }
+        current = new AtomicReference<GraphSnapshot>(
+                GraphSnapshot.empty(metricNames));
+    }
+
+    /** Constructor: create a graph whose first version holds the current
+     * contents of g. The versions get nodes of their own, with the same ids
+     * and indices as g's; later changes to g are not seen. */
+    public VersionedGraph(Graph g) {
+        current = new AtomicReference<GraphSnapshot>(
+                g.snapshot().detached());
+    }
+
+    /** Return the latest committed version. */
+    @Override
+    public GraphSnapshot snapshot() {
+        return current.get();
+    }
+
+    /** Start a new batch of changes. */
+    public Batch begin() {
+        return new Batch();
+    }
+
+    /** A set of node and edge additions that become visible together when
+     * committed. A Batch is used by a single writer and committed once. */
+    public class Batch {
+        private final ArrayList<String> nodeIds = new ArrayList<String>();
+        private final ArrayList<String> origIds = new ArrayList<String>();
+        private final ArrayList<String> destIds = new ArrayList<String>();
+        private final ArrayList<double[]> weights = new ArrayList<double[]>();
+        private boolean committed;
+
+        /** Add a node with the given id, if it does not exist yet. */
+        public Batch addNode(String id) {
+            checkOpen();
+            nodeIds.add(id);
+            return this;
+        }
+
+        /** Add an edge from orig to dest with one weight per metric, creating
+         * the nodes if needed. If the edge exists already, overwrite its
+         * weights; if it is added twice in a batch, the last one wins. */
+        public Batch addEdge(String orig, String dest, double... edgeWeights) {
+            checkOpen();
+            origIds.add(orig);
+            destIds.add(dest);
+            weights.add(edgeWeights.clone());
+            return this;
+        }
+
+        /** Publish the changes as a new version and return it. If another
+         * batch was committed since this one's base version was read, the
+         * changes are applied again on top of it. */
+        public GraphSnapshot commit() {
+            checkOpen();
+            committed = true;
+            while (true) {
+                GraphSnapshot base = current.get();
+                GraphSnapshot next = base.withChanges(
+                        nodeIds, origIds, destIds, weights);
+                if (current.compareAndSet(base, next)) {
+                    return next;
+                }
+            }
+        }
+
+        /* Throw IllegalStateException if the batch was committed. */
+        private void checkOpen() {
+            if (committed) {
+                throw new IllegalStateException("Batch already committed");
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package graph;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RouteServerTest {
+
+    /* Parse a graph from the src/test/resources directory. */
+    private Graph getGraph(String fileName) throws IOException {
+        URL resource = getClass().getClassLoader().getResource(fileName);
+        return ShortestPaths.parseGraph("basic", resource.getPath());
+    }
+
+    /* Send a request to the server and return the response body. */
+    private String request(RouteServer server, String method, String path,
+            String body) throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + path);
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        con.setRequestMethod(method);
+        if (body != null) {
+            con.setDoOutput(true);
+            try (OutputStream out = con.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        InputStream in = con.getResponseCode() < 400
+                ? con.getInputStream() : con.getErrorStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    //Test single and batch queries against the FakeCanada graph
+    public void test00Queries() throws IOException {
+        RouteServer server = new RouteServer(getGraph("FakeCanada.txt"), 0);
+        server.start();
+        try {
+            assertEquals("{\"from\":\"YUL\",\"to\":\"YYZ\",\"distance\":320.0,"
+                    + "\"path\":[\"YUL\",\"YOW\",\"YYZ\"]}",
+                    request(server, "GET", "/path?from=YUL&to=YYZ", null));
+            String distances = request(server, "GET", "/distances?from=YVR", null);
+            assertTrue(distances.contains("\"YUL\":2295.0"));
+            assertTrue(distances.contains("\"YVR\":0.0"));
+
+            String batch = request(server, "POST", "/path",
+                    "[{\"from\":\"YUL\",\"to\":\"YOW\"},{\"to\":\"YUL\",\"from\":\"YOW\"}]");
+            assertTrue(batch.startsWith("[{\"from\":\"YUL\",\"to\":\"YOW\",\"distance\":94.0"));
+            assertTrue(batch.contains("{\"from\":\"YOW\",\"to\":\"YUL\",\"distance\":4624.0"));
+
+            assertTrue(request(server, "GET", "/path?from=YUL&to=XXX", null)
+                    .contains("Unknown node XXX"));
+            assertTrue(request(server, "GET", "/stats", null)
+                    .startsWith("{\"requests\":4,"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    //Test latency percentiles over a window of samples
+    public void test01Percentiles() {
+        RouteServer.LatencyWindow window = new RouteServer.LatencyWindow(100);
+        for (int i = 1; i <= 150; i++) {
+            window.record(i);
+        }
+        long[] sorted = window.sortedSnapshot();
+        assertEquals(100, sorted.length);
+        assertEquals(150, window.count());
+        assertEquals(100, RouteServer.percentile(sorted, 0.50));
+        assertEquals(149, RouteServer.percentile(sorted, 0.99));
+        assertEquals(0, RouteServer.percentile(new long[0], 0.99));
+    }
+}
@@ -4,8 +4,12 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 import static org.junit.Assert.*;
@@ -363,6 +367,639 @@ public class ShortestPathsTest {
         }
     }
 
+    @Test
+    //Test distances and paths from every node to a single target
+    public void test10DjikstraSimple1ToTarget() {
+        ShortestPaths sh = new ShortestPaths();
+        String fn0 = getGraphResource("Simple1.txt");
+        try {
+            Graph simple1 = ShortestPaths.parseGraph("basic", fn0);
+            sh.computeToTarget(simple1.getNode("S"));
+            assertEquals(0.0, sh.shortestPathLength(simple1.getNode("S")), 0.0001);
+            assertEquals(1.0, sh.shortestPathLength(simple1.getNode("D")), 0.0001);
+            assertEquals(3.0, sh.shortestPathLength(simple1.getNode("C")), 0.0001);
+            assertEquals(5.0, sh.shortestPathLength(simple1.getNode("B")), 0.0001);
+            assertEquals(5.0, sh.shortestPathLength(simple1.getNode("A")), 0.0001);
+            assertEquals(initializeList("A C D S", simple1),
+                    sh.shortestPath(simple1.getNode("A")));
+            assertEquals(initializeList("B D S", simple1),
+                    sh.shortestPath(simple1.getNode("B")));
+            assertEquals(initializeList("S", simple1),
+                    sh.shortestPath(simple1.getNode("S")));
+
+            //every node agrees with a forward search to the same target
+            ShortestPaths forward = new ShortestPaths();
+            for (Node n : simple1.getNodes().values()) {
+                forward.compute(n);
+                assertEquals(forward.shortestPathLength(simple1.getNode("S")),
+                        sh.shortestPathLength(n), 0.0001);
+            }
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test that a multi-source search labels each node with its closest origin
+    public void test11DjikstraSimple1MultiSource() {
+        ShortestPaths sh = new ShortestPaths();
+        String fn0 = getGraphResource("Simple1.txt");
+        try {
+            Graph simple1 = ShortestPaths.parseGraph("basic", fn0);
+            Node a = simple1.getNode("A");
+            Node d = simple1.getNode("D");
+            LinkedList<Node> origins = new LinkedList<>();
+            origins.add(a);
+            origins.add(d);
+            sh.computeFromSources(origins);
+            assertEquals(0.0, sh.shortestPathLength(a), 0.0001);
+            assertEquals(0.0, sh.shortestPathLength(d), 0.0001);
+            assertEquals(1.0, sh.shortestPathLength(simple1.getNode("B")), 0.0001);
+            assertEquals(2.0, sh.shortestPathLength(simple1.getNode("C")), 0.0001);
+            assertEquals(1.0, sh.shortestPathLength(simple1.getNode("S")), 0.0001);
+            assertEquals(a, sh.nearestSource(simple1.getNode("B")));
+            assertEquals(a, sh.nearestSource(simple1.getNode("C")));
+            assertEquals(d, sh.nearestSource(simple1.getNode("S")));
+            assertEquals(d, sh.nearestSource(d));
+            assertEquals(initializeList("D S", simple1),
+                    sh.shortestPath(simple1.getNode("S")));
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test choosing between metrics loaded in one pass from a DB1B file
+    public void test12DjikstraDB1BMetrics() {
+        ShortestPaths sh = new ShortestPaths();
+        String fn0 = getGraphResource("DB1BSample.csv");
+        try {
+            Graph g = ShortestPaths.parseGraph("db1b", fn0,
+                    new String[] {"distance", "coupons"});
+            Node ord = g.getNode("ORD");
+            Node lax = g.getNode("LAX");
+            assertEquals(2, g.getMetricNames().length);
+
+            //the first metric is used by default
+            sh.compute(ord);
+            assertEquals(1744.0, sh.shortestPathLength(lax), 0.0001);
+            assertEquals(767.0, sh.shortestPathLength(g.getNode("BOS")), 0.0001);
+
+            //fewest coupons prefers the connection through JFK
+            sh.setMetric(g.metric("coupons"));
+            sh.compute(ord);
+            assertEquals(2.0, sh.shortestPathLength(lax), 0.0001);
+            assertEquals(initializeList("ORD JFK LAX", g), sh.shortestPath(lax));
+
+            //a combination weighs both columns
+            sh.setMetric(g.metric(new String[] {"distance", "coupons"},
+                    new double[] {1.0, 500.0}));
+            sh.compute(ord);
+            assertEquals(3244.0, sh.shortestPathLength(lax), 0.0001);
+            assertEquals(initializeList("ORD LAX", g), sh.shortestPath(lax));
+
+            //metrics must fit the graph's columns and have no negative costs
+            Metric[] invalid = {Metric.column(2), Metric.combination(1, 1, 1),
+                    Metric.combination(1, -1)};
+            for (Metric m : invalid) {
+                sh.setMetric(m);
+                try {
+                    sh.compute(ord);
+                    fail("Expected IllegalArgumentException for " + m);
+                } catch (IllegalArgumentException ex) {
+                    //expected
+                }
+            }
+
+            //a single weight would leave the other metrics at 0
+            try {
+                g.addEdge(ord, g.getNode("BOS"), 1);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+            sh.setMetric(Metric.PRIMARY);
+            sh.compute(ord);
+            assertEquals(767.0, sh.shortestPathLength(g.getNode("BOS")), 0.0001);
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test strongly connected components and reachability labels
+    public void test13ReachabilityIndex() {
+        String fn0 = getGraphResource("Simple2.txt");
+        String fn1 = getGraphResource("FakeCanada.txt");
+        try {
+            Graph simple2 = ShortestPaths.parseGraph("basic", fn0);
+            Reachability reach = simple2.getReachability();
+            //Simple2 has no cycles, so every node is its own component
+            assertEquals(simple2.nodeCount(), reach.componentCount());
+            assertTrue(reach.canReach(simple2.getNode("A"), simple2.getNode("G")));
+            assertTrue(reach.canReach(simple2.getNode("D"), simple2.getNode("C")));
+            assertTrue(reach.canReach(simple2.getNode("G"), simple2.getNode("G")));
+            assertFalse(reach.canReach(simple2.getNode("G"), simple2.getNode("J")));
+            assertFalse(reach.canReach(simple2.getNode("H"), simple2.getNode("A")));
+
+            Graph canada = ShortestPaths.parseGraph("basic", fn1);
+            reach = canada.getReachability();
+            //the five cities form one cycle
+            assertEquals(1, reach.componentCount());
+            assertEquals(5, reach.componentSize(0));
+            //adding a node invalidates the index
+            Node yur = canada.getNode("YUR");
+            reach = canada.getReachability();
+            assertEquals(2, reach.componentCount());
+            assertFalse(reach.canReach(canada.getNode("YUL"), yur));
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test point-to-point searches that use the reachability index
+    public void test14DjikstraSimple2PointToPoint() {
+        String fn0 = getGraphResource("Simple2.txt");
+        try {
+            Graph simple2 = ShortestPaths.parseGraph("basic", fn0);
+            ShortestPaths sh = new ShortestPaths(simple2);
+            ShortestPaths full = new ShortestPaths();
+            for (Node orig : simple2.getNodes().values()) {
+                full.compute(orig);
+                for (Node dest : simple2.getNodes().values()) {
+                    sh.compute(orig, dest);
+                    assertEquals(full.shortestPathLength(dest),
+                            sh.shortestPathLength(dest), 0.0001);
+                    assertEquals(full.shortestPath(dest), sh.shortestPath(dest));
+                }
+            }
+            sh.compute(simple2.getNode("H"), simple2.getNode("A"));
+            assertNull(sh.shortestPath(simple2.getNode("A")));
+            assertNull(sh.shortestPath(simple2.getNode("E")));
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test that queries keep reading their snapshot while a VersionedGraph changes
+    public void test15VersionedGraphSnapshots() {
+        String fn0 = getGraphResource("Simple0.txt");
+        try {
+            VersionedGraph vg = new VersionedGraph(
+                    ShortestPaths.parseGraph("basic", fn0));
+            GraphSnapshot before = vg.snapshot();
+            GraphSnapshot after = vg.begin()
+                    .addEdge("B", "A", 1)
+                    .addEdge("A", "C", 0.5)
+                    .addNode("Z")
+                    .commit();
+            assertSame(after, vg.snapshot());
+            assertTrue(after.getVersion() > before.getVersion());
+            assertEquals(4, after.nodeCount());
+            assertEquals(4, after.edgeCount());
+            assertNull(before.getNode("Z"));
+
+            //the old version still answers as before
+            ShortestPaths old = new ShortestPaths(before);
+            old.compute(before.getNode("B"));
+            assertNull(old.shortestPath(before.getNode("A")));
+            old.compute(before.getNode("A"));
+            assertEquals(2.0, old.shortestPathLength(before.getNode("C")), 0.0001);
+
+            //new queries see the committed edges
+            ShortestPaths sh = new ShortestPaths(vg);
+            Node b = after.getNode("B");
+            sh.compute(b);
+            LinkedList<Node> ans = new LinkedList<>();
+            for (String id : "B A C".split(" "))
+                ans.add(after.getNode(id));
+            assertEquals(ans, sh.shortestPath(after.getNode("C")));
+            assertEquals(1.5, sh.shortestPathLength(after.getNode("C")), 0.0001);
+            sh.computeToTarget(after.getNode("B"));
+            assertEquals(2.0, sh.shortestPathLength(after.getNode("C")), 0.0001);
+            assertNull(sh.shortestPath(after.getNode("Z")));
+
+            //versions do not share nodes with the graph they were built from
+            Graph g = new Graph();
+            g.addEdge(g.getNode("A"), g.getNode("B"), 1);
+            VersionedGraph fromGraph = new VersionedGraph(g);
+            Node a = fromGraph.snapshot().getNode("A");
+            assertFalse(g.getNode("A") == a);
+            assertEquals(0, a.getDegree());
+            assertEquals(1, fromGraph.snapshot().degree(a.getIndex()));
+            try {
+                new ShortestPaths().compute(a);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+            sh = new ShortestPaths(fromGraph);
+            sh.compute(a);
+            assertEquals(1.0, sh.shortestPathLength(g.getNode("B")), 0.0001);
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+    }
+
+    @Test
+    //Test that a commit copies only the segments it changes
+    public void test16VersionedGraphCopyOnWrite() {
+        Graph g = new Graph();
+        for (int i = 0; i < 200; i++) {
+            g.addEdge(g.getNode("N" + i), g.getNode("N" + (i + 1)), 1);
+        }
+        VersionedGraph vg = new VersionedGraph(g);
+        GraphSnapshot before = vg.snapshot();
+        GraphSnapshot after = vg.begin().addEdge("N150", "N0", 1).commit();
+        //segments hold 64 nodes, and only N150's and N0's are copied
+        assertTrue(before.sharesOutEdges(after, 0));
+        assertTrue(before.sharesOutEdges(after, 64));
+        assertFalse(before.sharesOutEdges(after, 150));
+        assertFalse(before.sharesInEdges(after, 0));
+        assertTrue(before.sharesInEdges(after, 150));
+        assertEquals(before.edgeCount() + 1, after.edgeCount());
+        assertTrue(after.getReachability().canReach(
+                after.getNode("N150"), after.getNode("N3")));
+        assertFalse(before.getReachability().canReach(
+                before.getNode("N150"), before.getNode("N3")));
+    }
+
+    @Test
+    //Test that every frontier queue finds the same distances
+    public void test17FrontierKinds() {
+        String[] files = {"Simple2.txt", "FakeCanada.txt"};
+        try {
+            for (String file : files) {
+                Graph g = ShortestPaths.parseGraph("basic",
+                        getGraphResource(file));
+                for (Node origin : g.getNodes().values()) {
+                    ShortestPaths expected = new ShortestPaths();
+                    expected.setFrontierKind(Frontier.Kind.QUATERNARY);
+                    expected.compute(origin);
+                    for (Frontier.Kind kind : Frontier.Kind.values()) {
+                        ShortestPaths sh = new ShortestPaths();
+                        sh.setFrontierKind(kind);
+                        sh.compute(origin);
+                        for (Node n : g.getNodes().values()) {
+                            assertEquals(expected.shortestPathLength(n),
+                                    sh.shortestPathLength(n), 0.0001);
+                        }
+                    }
+                }
+            }
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+
+        //Dial's buckets and radix heaps need integral weights
+        Graph g = new Graph();
+        Node x = g.getNode("X");
+        Node a = g.getNode("A");
+        Node b = g.getNode("B");
+        g.addEdge(x, b, 1.1);
+        g.addEdge(x, a, 1.9);
+        g.addEdge(b, a, 0.1);
+        g.addEdge(a, g.getNode("C"), 1.0);
+        Frontier.Kind[] integral = {Frontier.Kind.DIAL, Frontier.Kind.RADIX};
+        for (Frontier.Kind kind : integral) {
+            ShortestPaths sh = new ShortestPaths();
+            sh.setFrontierKind(kind);
+            try {
+                sh.compute(x);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+        }
+        ShortestPaths sh = new ShortestPaths();
+        sh.compute(x);
+        assertEquals(2.2, sh.shortestPathLength(g.getNode("C")), 0.0001);
+    }
+
+    @Test
+    //Test that reordering keeps ids and distances and sorts the edges
+    public void test18ReorderedGraph() {
+        Graph g = ReorderBenchmark.randomAirlineGraph(300, 5);
+        ShortestPaths expected = new ShortestPaths();
+        for (NodeOrder order : NodeOrder.values()) {
+            Graph r = g.reordered(order);
+            assertEquals(g.nodeCount(), r.nodeCount());
+            assertEquals(g.snapshot().edgeCount(), r.snapshot().edgeCount());
+            for (int i = 0; i < r.nodeCount(); i++) {
+                Node n = r.nodeAt(i);
+                assertEquals(i, n.getIndex());
+                for (int e = 1; e < n.getDegree(); e++) {
+                    assertTrue(n.getTarget(e - 1).getIndex()
+                            < n.getTarget(e).getIndex());
+                }
+            }
+
+            ShortestPaths sh = new ShortestPaths();
+            for (String id : new String[] {"A0", "A42", "A299"}) {
+                expected.compute(g.getNode(id));
+                sh.compute(r.getNode(id));
+                for (Node n : g.getNodes().values()) {
+                    assertEquals(expected.shortestPathLength(n),
+                            sh.shortestPathLength(r.getNode(n.getId())),
+                            0.0001);
+                }
+            }
+        }
+
+        //hubs come first
+        Graph hubs = g.reordered(NodeOrder.HUBS_FIRST);
+        for (int i = 1; i < hubs.nodeCount(); i++) {
+            Node a = hubs.nodeAt(i - 1);
+            Node b = hubs.nodeAt(i);
+            assertTrue(a.getDegree() + a.getInDegree()
+                    >= b.getDegree() + b.getInDegree());
+        }
+    }
+
+    @Test
+    //Test range queries with distance and hop budgets
+    public void test19RangeQuery() {
+        String fn = getGraphResource("FakeCanada.txt");
+        try {
+            Graph canada = ShortestPaths.parseGraph("basic", fn);
+            RangeQuery rq = new RangeQuery(canada);
+            Node yul = canada.getNode("YUL");
+
+            assertEquals(3, rq.compute(yul, 1500, RangeQuery.UNLIMITED_HOPS));
+            assertEquals(initializeList("YUL YOW YYZ", canada),
+                    Arrays.asList(rq.getNode(0), rq.getNode(1), rq.getNode(2)));
+            assertEquals(320.0, rq.getDistance(2), 0.0001);
+            assertEquals(2, rq.getHops(2));
+
+            assertEquals(2, rq.compute(yul, Double.POSITIVE_INFINITY, 1));
+            assertEquals(canada.getNode("YOW"), rq.getNode(1));
+            assertEquals(5, rq.compute(yul, Double.POSITIVE_INFINITY,
+                    RangeQuery.UNLIMITED_HOPS));
+            assertEquals(2423.0, rq.getDistance(4), 0.0001);
+            assertEquals(1, rq.compute(yul, 0, RangeQuery.UNLIMITED_HOPS));
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+
+        //a hop budget can force a longer path
+        Graph g = new Graph();
+        g.addEdge(g.getNode("A"), g.getNode("B"), 1);
+        g.addEdge(g.getNode("B"), g.getNode("C"), 1);
+        g.addEdge(g.getNode("A"), g.getNode("C"), 5);
+        RangeQuery rq = new RangeQuery();
+        assertEquals(3, rq.compute(g.getNode("A"), 10, 1));
+        assertEquals(g.getNode("C"), rq.getNode(2));
+        assertEquals(5.0, rq.getDistance(2), 0.0001);
+        assertEquals(3, rq.compute(g.getNode("A"), 10, 2));
+        assertEquals(2.0, rq.getDistance(2), 0.0001);
+        assertEquals(2, rq.getHops(2));
+    }
+
+    @Test
+    //Test that pruning dominated edges keeps every shortest path
+    public void test20PrunedGraph() {
+        Graph g = new Graph("distance", "fare");
+        g.addEdge(g.getNode("A"), g.getNode("B"), new double[] {10, 50});
+        g.addEdge(g.getNode("A"), g.getNode("C"), new double[] {3, 200});
+        g.addEdge(g.getNode("C"), g.getNode("B"), new double[] {4, 200});
+        g.addEdge(g.getNode("B"), g.getNode("D"), new double[] {1, 10});
+        g.addEdge(g.getNode("A"), g.getNode("D"), new double[] {9, 90});
+        PrunedGraph pg = new PrunedGraph(g);
+        assertEquals(2, pg.removedEdgeCount());
+        assertEquals(3, pg.snapshot().edgeCount());
+        assertEquals(Metric.PRIMARY, pg.snapshot().getPrunedMetric());
+
+        ShortestPaths full = new ShortestPaths(g);
+        ShortestPaths pruned = new ShortestPaths(pg);
+        for (Node n : g.getNodes().values()) {
+            full.compute(n);
+            pruned.compute(n);
+            for (Node m : g.getNodes().values()) {
+                assertEquals(full.shortestPathLength(m),
+                        pruned.shortestPathLength(m), 0.0001);
+                assertEquals(full.shortestPath(m), pruned.shortestPath(m));
+            }
+        }
+        pruned.computeToTarget(g.getNode("D"));
+        assertEquals(initializeList("A C B D", g),
+                pruned.shortestPath(g.getNode("A")));
+
+        //the pruned graph follows changes to the graph
+        g.addEdge(g.getNode("D"), g.getNode("E"), new double[] {2, 20});
+        assertEquals(2, pg.removedEdgeCount());
+        assertEquals(4, pg.snapshot().edgeCount());
+
+        //a fare-pruned graph keeps A -> B, which is the cheapest fare
+        PrunedGraph byFare = new PrunedGraph(g, g.metric("fare"), 2);
+        assertEquals(1, byFare.removedEdgeCount());
+
+        //other metrics and hop budgets need the full graph
+        pruned.setMetric(g.metric("fare"));
+        try {
+            pruned.compute(g.getNode("A"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+        try {
+            new RangeQuery(pg).compute(g.getNode("A"), 100, 2);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+
+
+    @Test
+    //Test streaming parsed edges into sinks with filters and attributes
+    public void test21EdgeStream() {
+        String fn = getGraphResource("DB1BSample.csv");
+        try {
+            //only American flights, with their carrier and quarter
+            DB1BParser parser = new DB1BParser("distance", "coupons");
+            parser.open(new File(fn));
+            parser.setFilter(RowFilter.oneOf("carrier", "AA"));
+            parser.setAttributes("Carrier", "quarter");
+            final LinkedList<String> rows = new LinkedList<>();
+            parser.parse((orig, dest, weights, attributes) ->
+                    rows.add(orig + " " + dest + " " + weights[0] + " "
+                            + weights[1] + " " + String.join(" ", attributes)));
+            assertEquals(Arrays.asList("ORD JFK 740.0 1.0 AA 1",
+                    "JFK LAX 2475.0 1.0 AA 1", "LAX ORD 1744.0 1.0 AA 1"), rows);
+
+            //a Graph is a sink too
+            parser = new DB1BParser();
+            parser.open(new File(fn));
+            parser.setFilter(RowFilter.all(RowFilter.oneOf("quarter", "1"),
+                    RowFilter.between("distance", 500, 2000)));
+            Graph g = parser.parse();
+            assertEquals(3, g.snapshot().edgeCount());
+            ShortestPaths sh = new ShortestPaths();
+            sh.compute(g.getNode("LAX"));
+            assertEquals(2484.0, sh.shortestPathLength(g.getNode("JFK")), 0.0001);
+
+            //basic files have the columns origin, dest and distance
+            BasicParser basic = new BasicParser();
+            basic.open(new File(getGraphResource("FakeCanada.txt")));
+            basic.setFilter(RowFilter.between("distance", 0, 500));
+            assertEquals(3, basic.parse().snapshot().edgeCount());
+
+            //a filter on a column the file lacks fails before any row
+            basic.open(new File(getGraphResource("FakeCanada.txt")));
+            basic.setFilter(RowFilter.oneOf("carrier", "AA"));
+            try {
+                basic.parse();
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+        } catch (FileNotFoundException ex) {
+            fail("Could not find file");
+        }
+
+        //rejected rows are never decoded
+        try {
+            File f = File.createTempFile("edges", ".txt");
+            f.deleteOnExit();
+            PrintWriter out = new PrintWriter(f);
+            out.println("A B 1");
+            out.println("B C not-a-number");
+            out.close();
+            BasicParser basic = new BasicParser();
+            basic.open(f);
+            basic.setFilter(RowFilter.oneOf("origin", "A"));
+            assertEquals(1, basic.parse().snapshot().edgeCount());
+        } catch (IOException ex) {
+            fail("Could not write file");
+        }
+    }
+
+
+    @Test
+    //Test betweenness and closeness centrality, exact and sampled
+    public void test22Centrality() {
+        //two equally short routes from A to D, through B and through C
+        Graph g = new Graph();
+        g.addEdge(g.getNode("A"), g.getNode("B"), 1);
+        g.addEdge(g.getNode("A"), g.getNode("C"), 1);
+        g.addEdge(g.getNode("B"), g.getNode("D"), 1);
+        g.addEdge(g.getNode("C"), g.getNode("D"), 1);
+        g.addEdge(g.getNode("D"), g.getNode("E"), 2);
+        Centrality c = new Centrality(g);
+        c.setThreads(2);
+        c.compute();
+        assertEquals(0.0, c.getErrorBound(), 0.0);
+        //B is on half the paths from A to D and E, D on all paths into E
+        assertEquals(1.0 / 12, c.getBetweenness(g.getNode("B")), 0.0001);
+        assertEquals(3.0 / 12, c.getBetweenness(g.getNode("D")), 0.0001);
+        assertEquals(0.0, c.getBetweenness(g.getNode("A")), 0.0001);
+        assertEquals(g.getNode("D"), c.rankByBetweenness().get(0));
+        //E is reached from A (4), B (3), C (3) and D (2)
+        assertEquals((1.0 / 4 + 1.0 / 3 + 1.0 / 3 + 1.0 / 2) / 4,
+                c.getCloseness(g.getNode("E")), 0.0001);
+        assertEquals(0.0, c.getCloseness(g.getNode("A")), 0.0001);
+
+        //sampling every source is exact
+        Centrality all = new Centrality(g);
+        all.computeSampled(5, 1);
+        assertEquals(0.0, all.getErrorBound(), 0.0);
+        assertEquals(c.rankByBetweenness(), all.rankByBetweenness());
+
+        //a sample stays within its error bound
+        Graph big = ReorderBenchmark.randomAirlineGraph(200, 9);
+        Centrality exact = new Centrality(big);
+        exact.compute();
+        Centrality sampled = new Centrality(big);
+        sampled.computeSampled(50, 3);
+        assertEquals(50, sampled.getSourceCount());
+        assertTrue(sampled.getErrorBound() > 0);
+        for (Node n : big.getNodes().values()) {
+            assertEquals(exact.getBetweenness(n), sampled.getBetweenness(n),
+                    sampled.getErrorBound());
+        }
+
+        //zero-weight edges break the path counts, so they are rejected
+        Graph zero = new Graph();
+        zero.addEdge(zero.getNode("S"), zero.getNode("B"), 1);
+        zero.addEdge(zero.getNode("S"), zero.getNode("A"), 1);
+        zero.addEdge(zero.getNode("B"), zero.getNode("A"), 0);
+        zero.addEdge(zero.getNode("A"), zero.getNode("T"), 1);
+        try {
+            new Centrality(zero).compute();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    //Test that edges added through a Node refresh the snapshot, and that
+    //nodes not in the searched snapshot are rejected
+    public void test23NodeEdgesInvalidateSnapshot() {
+        Graph g = new Graph();
+        Node x = g.getNode("X");
+        Node y = g.getNode("Y");
+        Node z = g.getNode("Z");
+        g.addEdge(x, y, 5);
+        ShortestPaths sp = new ShortestPaths();
+        sp.compute(x);
+        assertEquals(Double.POSITIVE_INFINITY, sp.shortestPathLength(z), 0.0);
+        x.addNeighbor(z, 1);
+        sp.compute(x);
+        assertEquals(1.0, sp.shortestPathLength(z), 0.0001);
+        x.addNeighbor(y, new double[] {2});
+        sp.compute(x);
+        assertEquals(2.0, sp.shortestPathLength(y), 0.0001);
+
+        //nodes missing from the searched snapshot are rejected
+        VersionedGraph vg = new VersionedGraph(g);
+        Node late = g.getNode("Late");
+        Graph other = new Graph();
+        Node stranger = other.getNode("Stranger");
+        other.addEdge(stranger, other.getNode("Y"), 1);
+        ShortestPaths versioned = new ShortestPaths(vg);
+        ShortestPaths plain = new ShortestPaths(g);
+        Runnable[] invalid = {
+            () -> versioned.compute(late),
+            () -> versioned.compute(x, late),
+            () -> plain.compute(stranger),
+            () -> plain.computeToTarget(stranger),
+            () -> plain.computeFromSources(Arrays.asList(x, stranger))
+        };
+        for (Runnable query : invalid) {
+            try {
+                query.run();
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    //Test that a failing worker thread fails the whole parallel run
+    public void test24ParallelWorkerFailure() {
+        final IllegalArgumentException failure =
+                new IllegalArgumentException("worker 1 failed");
+        final int[] done = new int[3];
+        try {
+            Parallel.run(3, "Test", t -> {
+                if (t == 1) {
+                    throw failure;
+                }
+                done[t] = 1;
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertSame(failure, ex.getCause());
+        }
+
+        Parallel.run(3, "Test", t -> done[t] = 2);
+        assertArrayEquals(new int[] {2, 2, 2}, done);
+    }
+
 
     /*
      * Initialize linkedlist with expected node that should be contained